@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene.benchmark;
+
+import com.github.msarhan.lucene.ArabicRootCache;
+import com.github.msarhan.lucene.ArabicRootExtractorAnalyzer;
+import com.github.msarhan.lucene.ArabicRootExtractorStemFilter;
+import com.github.msarhan.lucene.ArabicRootExtractorStemmer;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.ar.ArabicAnalyzer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole token streams over the sample corpus: <ul> <li>{@code stemFilter}: a {@link
+ * WhitespaceTokenizer} followed by {@link ArabicRootExtractorStemFilter} on plain text; <li>{@code
+ * analyzer}: the complete {@link ArabicRootExtractorAnalyzer} chain; <li>{@code lucene}: Lucene's
+ * {@link ArabicAnalyzer}, whose {@code ArabicStemFilter} is a light stemmer, as a baseline. </ul>
+ * Every chain shares a root cache across iterations, as a long running indexer would.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisChainBenchmark {
+
+    @Param({"stemFilter", "analyzer", "lucene"})
+    public String chain;
+
+    @Param({"plain", "vowelled"})
+    public String form;
+
+    private String text;
+    private Analyzer analyzer;
+
+    @Setup
+    public void setup() {
+        text = Corpus.text(Corpus.sentences(form));
+        switch (chain) {
+            case "stemFilter":
+                if (!"plain".equals(form)) {
+                    // the stem filter expects normalized input
+                    text = Corpus.text(Corpus.PLAIN);
+                }
+                ArabicRootCache cache = new ArabicRootCache();
+                analyzer = new Analyzer() {
+                    @Override
+                    protected TokenStreamComponents createComponents(String fieldName) {
+                        Tokenizer source = new WhitespaceTokenizer();
+                        return new TokenStreamComponents(source, new ArabicRootExtractorStemFilter(
+                            source, new ArabicRootExtractorStemmer(cache)));
+                    }
+                };
+                break;
+            case "analyzer":
+                analyzer = new ArabicRootExtractorAnalyzer(
+                    ArabicRootExtractorAnalyzer.getDefaultStopSet(), CharArraySet.EMPTY_SET,
+                    new ArabicRootCache());
+                break;
+            case "lucene":
+                analyzer = new ArabicAnalyzer();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown chain: " + chain);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        analyzer.close();
+    }
+
+    @Benchmark
+    public int analyze(TokenCounter counter) throws IOException {
+        int tokens = 0;
+        try (TokenStream stream = analyzer.tokenStream("text", new StringReader(text))) {
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens++;
+            }
+            stream.end();
+        }
+        counter.tokens += tokens;
+        return tokens;
+    }
+}
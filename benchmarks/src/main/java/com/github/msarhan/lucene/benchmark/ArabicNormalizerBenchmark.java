@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene.benchmark;
+
+import com.github.msarhan.lucene.ArabicNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ArabicNormalizer#normalize(char[], int)} on the words of the sample corpus.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArabicNormalizerBenchmark {
+
+    @Param({"plain", "vowelled"})
+    public String form;
+
+    private final ArabicNormalizer normalizer = new ArabicNormalizer();
+    private char[][] words;
+    private char[] buffer;
+
+    @Setup
+    public void setup() {
+        List<String> list = Corpus.words(Corpus.sentences(form));
+        words = new char[list.size()][];
+        int maxLength = 0;
+        for (int i = 0; i < words.length; i++) {
+            words[i] = list.get(i).toCharArray();
+            maxLength = Math.max(maxLength, words[i].length);
+        }
+        buffer = new char[maxLength];
+    }
+
+    @Benchmark
+    public int normalize(TokenCounter counter) {
+        int length = 0;
+        for (char[] word : words) {
+            System.arraycopy(word, 0, buffer, 0, word.length);
+            length += normalizer.normalize(buffer, word.length);
+        }
+        counter.tokens += words.length;
+        return length;
+    }
+}
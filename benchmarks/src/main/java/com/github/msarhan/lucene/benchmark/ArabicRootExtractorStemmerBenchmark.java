@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene.benchmark;
+
+import com.github.msarhan.lucene.ArabicRootBuffer;
+import com.github.msarhan.lucene.ArabicRootCache;
+import com.github.msarhan.lucene.ArabicRootExtractorStemmer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ArabicRootExtractorStemmer} on the words of the sample corpus. <p> With a
+ * {@code cold} vocabulary every word goes through the morphological analysis; with a {@code warm}
+ * one the roots of every word are already in the {@link ArabicRootCache}. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArabicRootExtractorStemmerBenchmark {
+
+    @Param({"cold", "warm"})
+    public String vocabulary;
+
+    private ArabicRootExtractorStemmer stemmer;
+    private final ArabicRootBuffer roots = new ArabicRootBuffer();
+    private char[][] words;
+
+    @Setup
+    public void setup() {
+        List<String> list = Corpus.words(Corpus.PLAIN);
+        words = new char[list.size()][];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = list.get(i).toCharArray();
+        }
+
+        if ("warm".equals(vocabulary)) {
+            stemmer = new ArabicRootExtractorStemmer(new ArabicRootCache());
+            stem();
+        } else {
+            stemmer = new ArabicRootExtractorStemmer();
+        }
+    }
+
+    @Benchmark
+    public int stem(TokenCounter counter) {
+        counter.tokens += words.length;
+        return stem();
+    }
+
+    private int stem() {
+        int count = 0;
+        for (char[] word : words) {
+            stemmer.stem(word, 0, word.length, roots);
+            count += roots.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene.benchmark;
+
+import com.github.msarhan.lucene.ArabicNormalizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The sample corpus bundled with the benchmarks: fully vowelled Arabic sentences, and the same
+ * sentences with their diacritics removed.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+final class Corpus {
+
+    static final List<String> VOWELLED = load();
+    static final List<String> PLAIN = normalize(VOWELLED);
+
+    private Corpus() {
+    }
+
+    /**
+     * @return the sentences of the corpus in the given {@code form}, either "plain" or "vowelled"
+     */
+    static List<String> sentences(String form) {
+        switch (form) {
+            case "plain":
+                return PLAIN;
+            case "vowelled":
+                return VOWELLED;
+            default:
+                throw new IllegalArgumentException("Unknown corpus form: " + form);
+        }
+    }
+
+    /**
+     * @return the whitespace separated words of the given sentences, in order
+     */
+    static List<String> words(List<String> sentences) {
+        List<String> words = new ArrayList<>();
+        for (String sentence : sentences) {
+            Collections.addAll(words, sentence.split("\\s+"));
+        }
+        return words;
+    }
+
+    /**
+     * @return the sentences joined in a single text
+     */
+    static String text(List<String> sentences) {
+        return String.join("\n", sentences);
+    }
+
+    private static List<String> load() {
+        List<String> sentences = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            Corpus.class.getResourceAsStream("corpus.txt"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    sentences.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Collections.unmodifiableList(sentences);
+    }
+
+    private static List<String> normalize(List<String> sentences) {
+        ArabicNormalizer normalizer = new ArabicNormalizer();
+        List<String> normalized = new ArrayList<>(sentences.size());
+        for (String sentence : sentences) {
+            char[] chars = sentence.toCharArray();
+            normalized.add(new String(chars, 0, normalizer.normalize(chars, chars.length)));
+        }
+        return Collections.unmodifiableList(normalized);
+    }
+}
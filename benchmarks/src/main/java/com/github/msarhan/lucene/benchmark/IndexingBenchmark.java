@@ -0,0 +1,378 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene.benchmark;
+
+import com.github.msarhan.lucene.ArabicRootCache;
+import com.github.msarhan.lucene.ArabicRootExtractorAnalyzer;
+import com.github.msarhan.lucene.ArabicRootVocabulary;
+import com.github.msarhan.lucene.ArabicSurfaceAnalyzer;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ar.ArabicAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.QueryBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Indexes a corpus into an {@link MMapDirectory} with each analyzer in turn and reports what it
+ * costs end to end:
+ * <ul>
+ * <li>indexing throughput in documents per second, and the share of it spent analyzing, measured
+ * as the time of an analysis-only pass over the same documents with the same threads;</li>
+ * <li>the size of the index, and of its terms dictionary, after merging it to one segment;</li>
+ * <li>the median and 99th percentile latency of a fixed mix of term, disjunction and phrase
+ * queries.</li>
+ * </ul>
+ * Documents are generated with a fixed seed from the words of the bundled sentences, in vowelled
+ * and plain forms, with random proclitics and enclitics attached so that the vocabulary runs into
+ * thousands of surface forms. This is still far smaller than a real collection, whose long tail of
+ * rare words keeps the root cache missing: prefer {@code --corpus}, which indexes a UTF-8 file
+ * with one document per line. Each pass gets a fresh analyzer, and so a cold root cache, so that
+ * the analysis-only and the indexing passes run the same morphological analysis. Usage:
+ * <pre>
+ * java -cp target/benchmarks.jar com.github.msarhan.lucene.benchmark.IndexingBenchmark \
+ *     [--docs 10000] [--words 300] [--corpus file] [--threads 1] [--queries 200] \
+ *     [--rounds 20] [--analyzers root,root-folding,root-vocabulary,root-routing,surface,lucene]
+ * </pre>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class IndexingBenchmark {
+
+    private static final String FIELD = "text";
+    private static final long SEED = 42;
+    private static final int WARMUP_DOCS = 1000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final String[] TERMS_DICTIONARY_EXTENSIONS = {".tim", ".tip", ".tmd"};
+    private static final String[] PROCLITICS = {"و", "ف", "ب", "ل", "ك"};
+    private static final String[] ENCLITICS = {"ه", "ها", "هم", "كم", "نا"};
+
+    private static final Map<String, Supplier<Analyzer>> ANALYZERS = new LinkedHashMap<>();
+
+    static {
+        ANALYZERS.put("root", () -> ArabicRootExtractorAnalyzer.builder()
+            .rootCache(new ArabicRootCache())
+            .build());
+        ANALYZERS.put("root-folding", () -> ArabicRootExtractorAnalyzer.builder()
+            .rootCache(new ArabicRootCache())
+            .folding(true)
+            .build());
+        ANALYZERS.put("root-vocabulary", () -> ArabicRootExtractorAnalyzer.builder()
+            .rootCache(new ArabicRootCache())
+            .rootVocabulary(ArabicRootVocabulary.getDefault())
+            .build());
+        ANALYZERS.put("root-routing", () -> ArabicRootExtractorAnalyzer.builder()
+            .rootCache(new ArabicRootCache())
+            .tokenRouting(true)
+            .build());
+        ANALYZERS.put("surface", ArabicSurfaceAnalyzer::new);
+        ANALYZERS.put("lucene", ArabicAnalyzer::new);
+    }
+
+    private final List<String> documents;
+    private final List<String[]> queries;
+    private final int threads;
+    private final int rounds;
+
+    private IndexingBenchmark(List<String> documents, List<String[]> queries, int threads,
+        int rounds) {
+        this.documents = documents;
+        this.queries = queries;
+        this.threads = threads;
+        this.rounds = rounds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                System.err.println("Usage: IndexingBenchmark [--docs n] [--words n]"
+                    + " [--corpus file] [--threads n] [--queries n] [--rounds n]"
+                    + " [--analyzers name,...]");
+                System.exit(1);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        Random random = new Random(SEED);
+        List<String> documents = options.containsKey("corpus")
+            ? Files.readAllLines(Paths.get(options.get("corpus")), StandardCharsets.UTF_8)
+            : generate(random, Integer.parseInt(options.getOrDefault("docs", "10000")),
+                Integer.parseInt(options.getOrDefault("words", "300")));
+        List<String[]> queries = queries(random, documents,
+            Integer.parseInt(options.getOrDefault("queries", "200")));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+        IndexingBenchmark benchmark = new IndexingBenchmark(documents, queries, threads,
+            Integer.parseInt(options.getOrDefault("rounds", "20")));
+
+        List<String> names = options.containsKey("analyzers")
+            ? Arrays.asList(options.get("analyzers").split(","))
+            : new ArrayList<>(ANALYZERS.keySet());
+        System.out.printf("%d documents, %d queries, %d indexing threads%n", documents.size(),
+            queries.size(), threads);
+        System.out.printf("%-16s %10s %9s %12s %12s %10s %10s%n", "analyzer", "docs/s",
+            "analysis", "index (KB)", "terms (KB)", "p50 (us)", "p99 (us)");
+        for (String name : names) {
+            Supplier<Analyzer> analyzer = ANALYZERS.get(name);
+            if (analyzer == null) {
+                throw new IllegalArgumentException("Unknown analyzer: " + name
+                    + ", expected one of " + ANALYZERS.keySet());
+            }
+            System.out.println(benchmark.run(name, analyzer));
+        }
+    }
+
+    private String run(String name, Supplier<Analyzer> analyzers) throws Exception {
+        try (Analyzer warmup = analyzers.get()) {
+            for (int i = 0, n = Math.min(WARMUP_DOCS, documents.size()); i < n; i++) {
+                analyze(warmup, documents.get(i));
+            }
+        }
+
+        long analysisNanos;
+        try (Analyzer analyzer = analyzers.get()) {
+            long start = System.nanoTime();
+            parallel(i -> analyze(analyzer, documents.get(i)));
+            analysisNanos = System.nanoTime() - start;
+        }
+
+        Path path = Files.createTempDirectory("indexing-benchmark");
+        try (Analyzer a = analyzers.get(); Directory directory = new MMapDirectory(path)) {
+            TieredMergePolicy mergePolicy = new TieredMergePolicy();
+            mergePolicy.setNoCFSRatio(0.0);
+            IndexWriterConfig config = new IndexWriterConfig(a)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
+                .setUseCompoundFile(false)
+                .setMergePolicy(mergePolicy);
+            long indexingNanos;
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                long start = System.nanoTime();
+                parallel(i -> {
+                    Document document = new Document();
+                    document.add(new TextField(FIELD, documents.get(i), Field.Store.NO));
+                    writer.addDocument(document);
+                });
+                writer.commit();
+                indexingNanos = System.nanoTime() - start;
+                writer.forceMerge(1);
+            }
+
+            long indexBytes = 0;
+            long termsBytes = 0;
+            for (String file : directory.listAll()) {
+                long length = directory.fileLength(file);
+                indexBytes += length;
+                for (String extension : TERMS_DICTIONARY_EXTENSIONS) {
+                    if (file.endsWith(extension)) {
+                        termsBytes += length;
+                    }
+                }
+            }
+
+            long[] latencies;
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                latencies = search(new IndexSearcher(reader), parse(a));
+            }
+            Arrays.sort(latencies);
+
+            return String.format("%-16s %10.0f %8.1f%% %12d %12d %10.1f %10.1f", name,
+                documents.size() * 1e9 / indexingNanos, 100.0 * analysisNanos / indexingNanos,
+                indexBytes / 1024, termsBytes / 1024, percentile(latencies, 0.50) / 1e3,
+                percentile(latencies, 0.99) / 1e3);
+        } finally {
+            try (Stream<Path> files = Files.walk(path)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                    try {
+                        Files.delete(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        }
+    }
+
+    private List<Query> parse(Analyzer analyzer) {
+        QueryBuilder builder = new QueryBuilder(analyzer);
+        List<Query> parsed = new ArrayList<>(queries.size());
+        for (String[] query : queries) {
+            Query q = "phrase".equals(query[0])
+                ? builder.createPhraseQuery(FIELD, query[1])
+                : builder.createBooleanQuery(FIELD, query[1]);
+            // queries made only of stop words parse to null
+            if (q != null) {
+                parsed.add(q);
+            }
+        }
+        return parsed;
+    }
+
+    private long[] search(IndexSearcher searcher, List<Query> mix) throws IOException {
+        long hits = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (Query query : mix) {
+                hits += searcher.search(query, 10).totalHits.value;
+            }
+        }
+        long[] latencies = new long[rounds * mix.size()];
+        int n = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (Query query : mix) {
+                long start = System.nanoTime();
+                hits += searcher.search(query, 10).totalHits.value;
+                latencies[n++] = System.nanoTime() - start;
+            }
+        }
+        if (hits < 0) {
+            throw new AssertionError();
+        }
+        return latencies;
+    }
+
+    private void parallel(DocumentTask task) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i; (i = next.getAndIncrement()) < documents.size(); ) {
+                        task.run(i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int analyze(Analyzer analyzer, String text) throws IOException {
+        int tokens = 0;
+        try (TokenStream stream = analyzer.tokenStream(FIELD, text)) {
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens++;
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    /**
+     * @return {@code count} documents of {@code words} words drawn from the bundled corpus, each of
+     * them vowelled or plain, and three in four with a random proclitic, enclitic or both
+     */
+    private static List<String> generate(Random random, int count, int words) {
+        List<String> vowelled = Corpus.words(Corpus.VOWELLED);
+        List<String> plain = Corpus.words(Corpus.PLAIN);
+        List<String> documents = new ArrayList<>(count);
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            document.setLength(0);
+            for (int j = 0; j < words; j++) {
+                List<String> form = random.nextBoolean() ? vowelled : plain;
+                int kind = random.nextInt(4);
+                if (kind == 1 || kind == 3) {
+                    document.append(PROCLITICS[random.nextInt(PROCLITICS.length)]);
+                }
+                document.append(form.get(random.nextInt(form.size())));
+                if (kind == 2 || kind == 3) {
+                    document.append(ENCLITICS[random.nextInt(ENCLITICS.length)]);
+                }
+                document.append(j % 15 == 14 ? '\n' : ' ');
+            }
+            documents.add(document.toString());
+        }
+        return documents;
+    }
+
+    /**
+     * @return a fixed mix of queries taken from the documents: half single words, three tenths
+     * pairs of words and the rest two word phrases, as {type, text} pairs
+     */
+    private static List<String[]> queries(Random random, List<String> documents, int count) {
+        List<String[]> queries = new ArrayList<>(count);
+        while (queries.size() < count) {
+            String[] words = documents.get(random.nextInt(documents.size())).trim().split("\\s+");
+            if (words.length < 2) {
+                continue;
+            }
+            int i = random.nextInt(words.length - 1);
+            int kind = random.nextInt(10);
+            if (kind < 5) {
+                queries.add(new String[]{"term", words[i]});
+            } else if (kind < 8) {
+                queries.add(new String[]{"or",
+                    words[i] + " " + words[random.nextInt(words.length)]});
+            } else {
+                queries.add(new String[]{"phrase", words[i] + " " + words[i + 1]});
+            }
+        }
+        return queries;
+    }
+
+    private interface DocumentTask {
+
+        void run(int document) throws IOException;
+    }
+}
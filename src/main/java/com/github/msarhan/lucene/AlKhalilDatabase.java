@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import AlKhalil2.util.Settings;
+
+/**
+ * The lexical databases AlKhalil can analyze words with. <p> AlKhalil ships its database in two
+ * artifacts, {@code alkhalil-db-long} and {@code alkhalil-db-short}, and reads the one selected by
+ * the JVM-global {@link Settings#dbchoice}. The database is selected once per JVM, before the first
+ * word is analyzed: from the {@code alkhalil.db} system property ({@code long} or {@code short}) if
+ * it is set, otherwise the long database if it is on the class path and the short one if not. An
+ * artifact built with {@code -Dalkhalil.db=short} or {@code -Dalkhalil.db=long} contains a single
+ * database, which is then selected without any configuration. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public enum AlKhalilDatabase {
+
+    LONG("long"),
+    SHORT("short");
+
+    /**
+     * The system property selecting the database.
+     */
+    public static final String PROPERTY = "alkhalil.db";
+
+    private static volatile AlKhalilDatabase selected;
+    private static volatile boolean inUse;
+
+    static {
+        String name = System.getProperty(PROPERTY);
+        selected = name != null && !name.isEmpty() ? forName(name)
+            : !LONG.isAvailable() && SHORT.isAvailable() ? SHORT : LONG;
+        Settings.dbchoice = selected == SHORT;
+    }
+
+    private final String directory;
+
+    AlKhalilDatabase(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return whether the artifact of this database is on the class path
+     */
+    public boolean isAvailable() {
+        return Settings.class.getResource(
+            "/AlKhalil2/db/derivedwords/" + directory + "/nouns/type/TypeNominal.xml") != null;
+    }
+
+    /**
+     * Parses a database name.
+     *
+     * @param name {@code long} or {@code short}, in any case
+     * @return the named database
+     * @throws IllegalArgumentException if {@code name} names no database
+     */
+    public static AlKhalilDatabase forName(String name) {
+        for (AlKhalilDatabase database : values()) {
+            if (database.directory.equalsIgnoreCase(name)) {
+                return database;
+            }
+        }
+        throw new IllegalArgumentException("Unknown AlKhalil database: " + name);
+    }
+
+    /**
+     * @return the database analyzed words are looked up in
+     */
+    public static AlKhalilDatabase current() {
+        return selected;
+    }
+
+    /**
+     * Selects the database of every engine of the JVM. Selecting the current database again has no
+     * effect.
+     *
+     * @param database the database to select
+     * @throws IllegalArgumentException if the artifact of {@code database} is not on the class path
+     * @throws IllegalStateException    if another database has already been used to analyze words
+     */
+    public static synchronized void select(AlKhalilDatabase database) {
+        if (database == selected) {
+            return;
+        }
+        if (!database.isAvailable()) {
+            throw new IllegalArgumentException("The " + database
+                + " AlKhalil database is not on the class path");
+        }
+        if (inUse) {
+            throw new IllegalStateException("The " + selected
+                + " AlKhalil database is already in use");
+        }
+        Settings.dbchoice = database == SHORT;
+        selected = database;
+    }
+
+    /**
+     * Prevents the database from changing once AlKhalil has loaded any of it.
+     *
+     * @return the database in use
+     */
+    static AlKhalilDatabase markInUse() {
+        if (!inUse) {
+            synchronized (AlKhalilDatabase.class) {
+                inUse = true;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public String toString() {
+        return directory;
+    }
+}
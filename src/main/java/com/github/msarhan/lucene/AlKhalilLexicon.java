@@ -0,0 +1,571 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import AlKhalil2.io.File;
+import AlKhalil2.morphology.analyzer.AnalyzerTokens;
+import AlKhalil2.morphology.derived.analyzer.factory.AnalyzerDerivedFactory;
+import AlKhalil2.morphology.derived.formulas.impl.FormulasDerivedNominal;
+import AlKhalil2.morphology.derived.formulas.impl.FormulasDerivedVerbal;
+import AlKhalil2.morphology.derived.postag.impl.POSTagDerivedNominal;
+import AlKhalil2.morphology.derived.postag.impl.POSTagDerivedVerbal;
+import AlKhalil2.morphology.derived.postag.interfaces.IPOSTagDerived;
+import AlKhalil2.morphology.derived.root.impl.RootDerivedNominal;
+import AlKhalil2.morphology.derived.root.impl.RootDerivedVerbal;
+import AlKhalil2.morphology.derived.type.impl.TypeDerivedNominal;
+import AlKhalil2.morphology.derived.type.impl.TypeDerivedVerbal;
+import AlKhalil2.morphology.derived.type.interfaces.ITypeDerived;
+import AlKhalil2.morphology.derived.unvoweled.impl.UnvoweledDerivedNominal;
+import AlKhalil2.morphology.derived.unvoweled.impl.UnvoweledDerivedVerbal;
+import AlKhalil2.morphology.derived.voweled.impl.VoweledDerivedNominal;
+import AlKhalil2.morphology.derived.voweled.impl.VoweledDerivedVerbal;
+import AlKhalil2.morphology.exceptional.Exceptional;
+import AlKhalil2.morphology.exceptional.analyzer.AnalyzerExceptionalWords;
+import AlKhalil2.morphology.underived.analyzer.factory.AnalyzerUnderivedFactory;
+import AlKhalil2.morphology.underived.type.impl.TypeUnderivedPropernoun;
+import AlKhalil2.morphology.underived.type.impl.TypeUnderivedToolwords;
+import AlKhalil2.morphology.underived.type.interfaces.ITypeUnderived;
+import AlKhalil2.morphology.underived.unvoweled.impl.UnvoweledUnderivedPropernoun;
+import AlKhalil2.morphology.underived.unvoweled.impl.UnvoweledUnderivedToolwords;
+import AlKhalil2.morphology.underived.unvoweled.interfaces.IUnvoweledUnderived;
+import AlKhalil2.morphology.underived.voweled.impl.VoweledUnderivedPropernoun;
+import AlKhalil2.morphology.underived.voweled.impl.VoweledUnderivedToolwords;
+import AlKhalil2.morphology.underived.voweled.interfaces.IVoweledUnderived;
+import AlKhalil2.util.constants.Database;
+import AlKhalil2.util.constants.Static;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A single copy of the AlKhalil lexicon, shared by any number of {@link AnalyzerTokens}. <p> Each
+ * {@link AnalyzerTokens} otherwise builds its own lexicon and fills it as words need it, so every
+ * analyzing thread holds a copy of every partition it has touched. AlKhalil locates the file of a
+ * partition through static fields of its {@code Database} class, set then read back by each load:
+ * two analyzers loading partitions at once may load the wrong file and file it under the wrong key.
+ * </p> <p> A lexicon loads the files every analysis needs when it is built. The partitions of roots,
+ * formulas and patterns, split by initial letter or pattern length, are loaded the first time a
+ * word needs them, one at a time under {@link #LOCK}, into concurrent maps: analyzers read loaded
+ * partitions without locking and only wait while a partition they need is loaded. Analysis never
+ * modifies the lexicon otherwise; {@link AnalyzerTokens#clear()} would empty it for every analyzer
+ * and must not be called on the analyzers it builds. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+final class AlKhalilLexicon {
+
+    /**
+     * Guards AlKhalil's {@code Database} statics: every load of the JVM holds it.
+     */
+    static final Object LOCK = new Object();
+
+    private static final Field ANALYZER_EW = field(AnalyzerTokens.class, "AnalyzerEW");
+    private static final Field ANALYZER_PN = field(AnalyzerTokens.class, "AnalyzerPN");
+    private static final Field ANALYZER_TW = field(AnalyzerTokens.class, "AnalyzerTW");
+    private static final Field ANALYZER_N = field(AnalyzerTokens.class, "AnalyzerN");
+    private static final Field ANALYZER_V = field(AnalyzerTokens.class, "AnalyzerV");
+    private static final Field EXCEPTIONAL = field(AnalyzerExceptionalWords.class, "exceptional");
+    private static final Field UNDERIVED_UNVOWELED = field(AnalyzerUnderivedFactory.class, "unvoweled");
+    private static final Field UNDERIVED_VOWELED = field(AnalyzerUnderivedFactory.class, "voweled");
+    private static final Field UNDERIVED_TYPE = field(AnalyzerUnderivedFactory.class, "type");
+    private static final Field DERIVED_ROOTS = field(AnalyzerDerivedFactory.class, "roots");
+    private static final Field DERIVED_FORMULAS = field(AnalyzerDerivedFactory.class, "formula");
+    private static final Field DERIVED_UNVOWELED = field(AnalyzerDerivedFactory.class, "unvoweled");
+    private static final Field DERIVED_VOWELED = field(AnalyzerDerivedFactory.class, "voweled");
+    private static final Field DERIVED_POS_TAG = field(AnalyzerDerivedFactory.class, "posTag");
+    private static final Field DERIVED_TYPE = field(AnalyzerDerivedFactory.class, "type");
+
+    private static volatile AlKhalilLexicon shared;
+
+    final NominalRoots nominalRoots = new NominalRoots();
+    final VerbalRoots verbalRoots = new VerbalRoots();
+    final NominalFormulas nominalFormulas = new NominalFormulas();
+    final VerbalFormulas verbalFormulas = new VerbalFormulas();
+    final NominalUnvoweled nominalUnvoweled = new NominalUnvoweled();
+    final VerbalUnvoweled verbalUnvoweled = new VerbalUnvoweled();
+    final NominalVoweled nominalVoweled = new NominalVoweled();
+    final VerbalVoweled verbalVoweled = new VerbalVoweled();
+    private final IPOSTagDerived nominalPosTag = new POSTagDerivedNominal();
+    private final IPOSTagDerived verbalPosTag = new POSTagDerivedVerbal();
+    private final ITypeDerived nominalType = new TypeDerivedNominal();
+    private final ITypeDerived verbalType = new TypeDerivedVerbal();
+    private final Exceptional exceptional = new Exceptional();
+    private final IUnvoweledUnderived propernounUnvoweled = new UnvoweledUnderivedPropernoun();
+    private final IVoweledUnderived propernounVoweled = new VoweledUnderivedPropernoun();
+    private final ITypeUnderived propernounType = new TypeUnderivedPropernoun();
+    private final IUnvoweledUnderived toolwordsUnvoweled = new UnvoweledUnderivedToolwords();
+    private final IVoweledUnderived toolwordsVoweled = new VoweledUnderivedToolwords();
+    private final ITypeUnderived toolwordsType = new TypeUnderivedToolwords();
+
+    private AlKhalilLexicon() {
+    }
+
+    /**
+     * Builds a lexicon from the XML files of the {@linkplain AlKhalilDatabase#current() current}
+     * database, loading the files every analysis needs.
+     *
+     * @return the new lexicon
+     * @throws IllegalStateException if a file of the database cannot be loaded
+     */
+    static AlKhalilLexicon load() {
+        AlKhalilDatabase database = AlKhalilDatabase.markInUse();
+        AlKhalilLexicon lexicon = new AlKhalilLexicon();
+        try {
+            synchronized (LOCK) {
+                lexicon.nominalRoots.loadLists();
+                lexicon.verbalRoots.loadLists();
+                lexicon.nominalPosTag.addPosTag();
+                lexicon.verbalPosTag.addPosTag();
+                lexicon.nominalType.addType();
+                lexicon.verbalType.addType();
+                lexicon.exceptional.addExceptionalForm();
+                lexicon.propernounUnvoweled.addUnvoweledForm();
+                lexicon.propernounVoweled.addVoweledForm();
+                lexicon.propernounType.addAllType();
+                lexicon.toolwordsUnvoweled.addUnvoweledForm();
+                lexicon.toolwordsVoweled.addVoweledForm();
+                lexicon.toolwordsType.addAllType();
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Cannot load the " + database + " AlKhalil database", e);
+        }
+        return lexicon;
+    }
+
+    /**
+     * Loads the partitions of roots, formulas and patterns the database has, so that analysis does
+     * not need to.
+     *
+     * @param lazy whether the roots and formulas are left to be loaded the first time a word needs
+     *             them
+     * @throws IllegalStateException if a partition of the database cannot be loaded
+     */
+    void loadPartitions(boolean lazy) {
+        try {
+            synchronized (LOCK) {
+                if (!lazy) {
+                    loadRoots();
+                    loadFormulas();
+                }
+                loadPatterns();
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Cannot load the " + AlKhalilDatabase.current()
+                + " AlKhalil database", e);
+        }
+    }
+
+    // no root starts with some of the letters, and some pattern lengths have no pattern: the
+    // partitions AlKhalil would look these up in do not exist
+
+    private void loadRoots() {
+        for (char c = 'ء'; c <= 'ي'; c++) {
+            char letter = c;
+            if (exists(() -> Database.setDerivedNTRootC(letter), Database::getDerivedNTRootC)) {
+                nominalRoots.addTrilateralRootMap(letter);
+            }
+            if (exists(() -> Database.setDerivedNQRootC(letter), Database::getDerivedNQRootC)) {
+                nominalRoots.addQuadriliteralRootMap(letter);
+            }
+            if (exists(() -> Database.setDerivedVTRootC(letter), Database::getDerivedVTRootC)) {
+                verbalRoots.addTrilateralRootMap(letter);
+            }
+            if (exists(() -> Database.setDerivedVQRootC(letter), Database::getDerivedVQRootC)) {
+                verbalRoots.addQuadriliteralRootMap(letter);
+            }
+        }
+    }
+
+    private void loadFormulas() {
+        for (int id = 0; id <= Static.Max_NominalPattern; id++) {
+            int length = id;
+            if (exists(() -> Database.setDerivedNFormulas(length), Database::getDerivedNFormulas)) {
+                nominalFormulas.addFormulaList(length);
+            }
+        }
+        for (int id = 0; id <= Static.Max_VerbalPattern; id++) {
+            int length = id;
+            if (exists(() -> Database.setDerivedVFormulas(length), Database::getDerivedVFormulas)) {
+                verbalFormulas.addFormulaList(length);
+            }
+        }
+    }
+
+    private void loadPatterns() {
+        for (int id = 0; id <= Static.Max_NominalPattern; id++) {
+            int length = id;
+            if (exists(() -> Database.setDerivedNUnvoweled(length), Database::getDerivedNUnvoweled)) {
+                nominalUnvoweled.addUnvoweledPatternDiacMap(length);
+            }
+            if (exists(() -> Database.setDerivedVoweledPLDN(length), Database::getDerivedVoweledPLDN)) {
+                nominalVoweled.addVoweledLemmeDiacMap(length);
+            }
+            if (exists(() -> Database.setDerivedVoweledPLCN(length), Database::getDerivedVoweledPLCN)) {
+                nominalVoweled.addVoweledLemmeCanonicMap(length);
+            }
+            if (exists(() -> Database.setDerivedVoweledPSDN(length), Database::getDerivedVoweledPSDN)) {
+                nominalVoweled.addVoweledPatternDiacMap(length);
+            }
+            if (exists(() -> Database.setDerivedVoweledPSCN(length), Database::getDerivedVoweledPSCN)) {
+                nominalVoweled.addVoweledPatternCanonicMap(length);
+            }
+        }
+        for (int id = 0; id <= Static.Max_VerbalPattern; id++) {
+            int length = id;
+            if (exists(() -> Database.setDerivedVUnvoweled(length), Database::getDerivedVUnvoweled)) {
+                verbalUnvoweled.addUnvoweledPatternDiacMap(length);
+            }
+            if (exists(() -> Database.setDerivedVoweledPLDV(length), Database::getDerivedVoweledPLDV)) {
+                verbalVoweled.addVoweledLemmeDiacMap(length);
+            }
+            if (exists(() -> Database.setDerivedVoweledPLCV(length), Database::getDerivedVoweledPLCV)) {
+                verbalVoweled.addVoweledLemmeCanonicMap(length);
+            }
+            if (exists(() -> Database.setDerivedVoweledPSDV(length), Database::getDerivedVoweledPSDV)) {
+                verbalVoweled.addVoweledPatternDiacMap(length);
+            }
+            if (exists(() -> Database.setDerivedVoweledPSCV(length), Database::getDerivedVoweledPSCV)) {
+                verbalVoweled.addVoweledPatternCanonicMap(length);
+            }
+        }
+    }
+
+    /**
+     * @return whether the database has the partition whose path AlKhalil computes from the global
+     * {@code select} sets
+     */
+    private static boolean exists(Runnable select, Supplier<String> path) {
+        select.run();
+        return File.class.getResource(File.getArabicURL(path.get())) != null;
+    }
+
+    /**
+     * Returns the lexicon read from the XML files by every engine without a snapshot. It is loaded
+     * the first time an analyzer is needed and lives as long as the JVM.
+     *
+     * @return the shared lexicon
+     * @throws IllegalStateException if a file of the database cannot be loaded
+     */
+    static AlKhalilLexicon shared() {
+        AlKhalilLexicon lexicon = shared;
+        if (lexicon == null) {
+            synchronized (AlKhalilLexicon.class) {
+                lexicon = shared;
+                if (lexicon == null) {
+                    shared = lexicon = load();
+                }
+            }
+        }
+        return lexicon;
+    }
+
+    /**
+     * Builds an analyzer reading this lexicon. The analyzer keeps its intermediate results in its
+     * own fields and, like any {@link AnalyzerTokens}, must be confined to a single thread. Its
+     * constructor still parses AlKhalil's clitic files, and allocates the empty lexicon this one
+     * replaces.
+     *
+     * @return a new analyzer
+     */
+    AnalyzerTokens newAnalyzerTokens() {
+        AnalyzerTokens analyzerTokens = new AnalyzerTokens();
+        try {
+            attachDerived(ANALYZER_N.get(analyzerTokens), nominalRoots, nominalFormulas,
+                nominalUnvoweled, nominalVoweled, nominalPosTag, nominalType);
+            attachDerived(ANALYZER_V.get(analyzerTokens), verbalRoots, verbalFormulas,
+                verbalUnvoweled, verbalVoweled, verbalPosTag, verbalType);
+            attachUnderived(ANALYZER_PN.get(analyzerTokens), propernounUnvoweled, propernounVoweled,
+                propernounType);
+            attachUnderived(ANALYZER_TW.get(analyzerTokens), toolwordsUnvoweled, toolwordsVoweled,
+                toolwordsType);
+            EXCEPTIONAL.set(ANALYZER_EW.get(analyzerTokens), exceptional);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return analyzerTokens;
+    }
+
+    private static void attachDerived(Object analyzer, Object roots, Object formulas,
+        Object unvoweled, Object voweled, Object posTag, Object type) throws IllegalAccessException {
+        DERIVED_ROOTS.set(analyzer, roots);
+        DERIVED_FORMULAS.set(analyzer, formulas);
+        DERIVED_UNVOWELED.set(analyzer, unvoweled);
+        DERIVED_VOWELED.set(analyzer, voweled);
+        DERIVED_POS_TAG.set(analyzer, posTag);
+        DERIVED_TYPE.set(analyzer, type);
+    }
+
+    private static void attachUnderived(Object analyzer, Object unvoweled, Object voweled,
+        Object type) throws IllegalAccessException {
+        UNDERIVED_UNVOWELED.set(analyzer, unvoweled);
+        UNDERIVED_VOWELED.set(analyzer, voweled);
+        UNDERIVED_TYPE.set(analyzer, type);
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Unsupported AlKhalil version", e);
+        }
+    }
+
+    static final class NominalRoots extends RootDerivedNominal {
+
+        NominalRoots() {
+            trilateralRootMap = new ConcurrentHashMap<>();
+            quadriliteralRootMap = new ConcurrentHashMap<>();
+        }
+
+        void loadLists() {
+            super.addTrilateralRootList();
+            super.addQuadriliteralRootList();
+        }
+
+        @Override
+        public void addTrilateralRootList() {
+        }
+
+        @Override
+        public void addQuadriliteralRootList() {
+        }
+
+        @Override
+        public void addTrilateralRootMap(char c) {
+            synchronized (LOCK) {
+                if (!containsTrilateralCharRoot(c)) {
+                    super.addTrilateralRootMap(c);
+                }
+            }
+        }
+
+        @Override
+        public void addQuadriliteralRootMap(char c) {
+            synchronized (LOCK) {
+                if (!containsQuadriliteralCharRoot(c)) {
+                    super.addQuadriliteralRootMap(c);
+                }
+            }
+        }
+    }
+
+    static final class VerbalRoots extends RootDerivedVerbal {
+
+        VerbalRoots() {
+            trilateralRootMap = new ConcurrentHashMap<>();
+            quadriliteralRootMap = new ConcurrentHashMap<>();
+        }
+
+        void loadLists() {
+            super.addTrilateralRootList();
+            super.addQuadriliteralRootList();
+        }
+
+        @Override
+        public void addTrilateralRootList() {
+        }
+
+        @Override
+        public void addQuadriliteralRootList() {
+        }
+
+        @Override
+        public void addTrilateralRootMap(char c) {
+            synchronized (LOCK) {
+                if (!containsTrilateralCharRoot(c)) {
+                    super.addTrilateralRootMap(c);
+                }
+            }
+        }
+
+        @Override
+        public void addQuadriliteralRootMap(char c) {
+            synchronized (LOCK) {
+                if (!containsQuadriliteralCharRoot(c)) {
+                    super.addQuadriliteralRootMap(c);
+                }
+            }
+        }
+    }
+
+    static final class NominalFormulas extends FormulasDerivedNominal {
+
+        NominalFormulas() {
+            formula = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public void addFormulaList(int id) {
+            synchronized (LOCK) {
+                if (!containsValFormula(id)) {
+                    super.addFormulaList(id);
+                }
+            }
+        }
+    }
+
+    static final class VerbalFormulas extends FormulasDerivedVerbal {
+
+        VerbalFormulas() {
+            formula = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public void addFormulaList(int id) {
+            synchronized (LOCK) {
+                if (!containsValFormula(id)) {
+                    super.addFormulaList(id);
+                }
+            }
+        }
+    }
+
+    static final class NominalUnvoweled extends UnvoweledDerivedNominal {
+
+        NominalUnvoweled() {
+            unvoweledPatternStem = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public void addUnvoweledPatternDiacMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdUnvoweled(id)) {
+                    super.addUnvoweledPatternDiacMap(id);
+                }
+            }
+        }
+    }
+
+    static final class VerbalUnvoweled extends UnvoweledDerivedVerbal {
+
+        VerbalUnvoweled() {
+            unvoweledPatternStem = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public void addUnvoweledPatternDiacMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdUnvoweled(id)) {
+                    super.addUnvoweledPatternDiacMap(id);
+                }
+            }
+        }
+    }
+
+    static final class NominalVoweled extends VoweledDerivedNominal {
+
+        NominalVoweled() {
+            voweledLemmeDiacMap = new ConcurrentHashMap<>();
+            voweledLemmeCanonicMap = new ConcurrentHashMap<>();
+            voweledPatternDiacMap = new ConcurrentHashMap<>();
+            voweledPatternCanonicMap = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public void addVoweledLemmeDiacMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdVoweledLemmeDiac(id)) {
+                    super.addVoweledLemmeDiacMap(id);
+                }
+            }
+        }
+
+        @Override
+        public void addVoweledLemmeCanonicMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdVoweledLemmeCanonic(id)) {
+                    super.addVoweledLemmeCanonicMap(id);
+                }
+            }
+        }
+
+        @Override
+        public void addVoweledPatternDiacMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdVoweledPatternDiac(id)) {
+                    super.addVoweledPatternDiacMap(id);
+                }
+            }
+        }
+
+        @Override
+        public void addVoweledPatternCanonicMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdVoweledPatternCanonic(id)) {
+                    super.addVoweledPatternCanonicMap(id);
+                }
+            }
+        }
+    }
+
+    static final class VerbalVoweled extends VoweledDerivedVerbal {
+
+        VerbalVoweled() {
+            voweledLemmeDiacMap = new ConcurrentHashMap<>();
+            voweledLemmeCanonicMap = new ConcurrentHashMap<>();
+            voweledPatternDiacMap = new ConcurrentHashMap<>();
+            voweledPatternCanonicMap = new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public void addVoweledLemmeDiacMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdVoweledLemmeDiac(id)) {
+                    super.addVoweledLemmeDiacMap(id);
+                }
+            }
+        }
+
+        @Override
+        public void addVoweledLemmeCanonicMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdVoweledLemmeCanonic(id)) {
+                    super.addVoweledLemmeCanonicMap(id);
+                }
+            }
+        }
+
+        @Override
+        public void addVoweledPatternDiacMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdVoweledPatternDiac(id)) {
+                    super.addVoweledPatternDiacMap(id);
+                }
+            }
+        }
+
+        @Override
+        public void addVoweledPatternCanonicMap(int id) {
+            synchronized (LOCK) {
+                if (!containsIdVoweledPatternCanonic(id)) {
+                    super.addVoweledPatternCanonicMap(id);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.util.Locale;
+
+/**
+ * How deep {@link ArabicRootExtractorStemmer} analyzes words. Each depth does only the work it
+ * needs: clitic stripping never touches the AlKhalil database, while stems and roots both come
+ * from the full morphological analysis.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public enum ArabicAnalysisDepth {
+
+    /**
+     * The stem left once AlKhalil's clitic stemmer strips proclitics and enclitics, such as the
+     * article and attached pronouns. Words are not looked up in the database, so any word gets a
+     * stem; the shortest candidate of at least {@value
+     * ArabicMorphologyEngine#MIN_CLITIC_STEM_LENGTH} letters is kept.
+     */
+    CLITIC,
+
+    /**
+     * The stems found by the morphological analysis, for the words AlKhalil knows.
+     */
+    STEM,
+
+    /**
+     * The roots found by the morphological analysis, or the stems of words without a root. The
+     * default.
+     */
+    ROOT;
+
+    /**
+     * Parses a depth name.
+     *
+     * @param name {@code clitic}, {@code stem} or {@code root}, in any case
+     * @return the named depth
+     * @throws IllegalArgumentException if {@code name} names no depth
+     */
+    public static ArabicAnalysisDepth forName(String name) {
+        for (ArabicAnalysisDepth depth : values()) {
+            if (depth.name().equalsIgnoreCase(name)) {
+                return depth;
+            }
+        }
+        throw new IllegalArgumentException("Unknown analysis depth: " + name);
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
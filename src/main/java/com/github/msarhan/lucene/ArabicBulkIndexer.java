@@ -0,0 +1,486 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.IndexableFieldType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Adds documents to an {@link IndexWriter} with their text analyzed ahead of time by a pool of
+ * workers. <p> {@link IndexWriter#addDocument(Iterable)} analyzes text fields on the calling
+ * thread, so root extraction, by far the most expensive part of indexing Arabic text, competes with
+ * flushing segments for the indexing threads. A bulk indexer runs the analysis on {@code
+ * parallelism} analysis workers instead: each tokenized text field is consumed once into a
+ * replayable token stream, and the analyzed documents are handed through a bounded queue to a few
+ * indexing threads, which add them to the writer as pre-analyzed fields. </p> <p> {@link
+ * #add(Iterable)} blocks while the queue of documents waiting for analysis is full, so a producer
+ * can never get ahead of the index by more than the capacity of the queues. Documents are added in
+ * no particular order. Workers and indexing threads come from a {@link ThreadFactory}, by default
+ * platform threads; {@link #virtualThreadFactory()} creates virtual threads on JVMs that support
+ * them. </p> <p> Stored text fields are split into a stored field and an indexed pre-analyzed
+ * field of the same name. Other fields are added unchanged. The writer is not closed by this
+ * class. </p>
+ * <pre>
+ * try (ArabicBulkIndexer indexer = ArabicBulkIndexer.builder(writer, analyzer)
+ *     .parallelism(8)
+ *     .build()) {
+ *     for (Document document : documents) {
+ *         indexer.add(document);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootExtractorAnalyzer
+ */
+public final class ArabicBulkIndexer implements Closeable {
+
+    private static final PendingDocument END = new PendingDocument(Collections.emptyList());
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final IndexWriter writer;
+    private final Analyzer analyzer;
+    private final BlockingQueue<PendingDocument> pending;
+    private final BlockingQueue<PendingDocument> analyzed;
+    private final List<Thread> workers = new ArrayList<>();
+    private final List<Thread> indexers = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Object lock = new Object();
+    private long submitted;
+    private long completed;
+    private boolean closed;
+
+    private ArabicBulkIndexer(Builder builder) {
+        this.writer = builder.writer;
+        this.analyzer = builder.analyzer;
+        this.pending = new ArrayBlockingQueue<>(builder.queueCapacity);
+        this.analyzed = new ArrayBlockingQueue<>(builder.queueCapacity);
+        int instance = INSTANCES.getAndIncrement();
+        for (int i = 0; i < builder.parallelism; i++) {
+            Thread worker = builder.threadFactory.newThread(this::analyze);
+            worker.setName("arabic-bulk-indexer-" + instance + "-analysis-" + i);
+            workers.add(worker);
+        }
+        for (int i = 0; i < builder.indexingThreads; i++) {
+            Thread indexer = builder.threadFactory.newThread(this::index);
+            indexer.setName("arabic-bulk-indexer-" + instance + "-indexing-" + i);
+            indexers.add(indexer);
+        }
+        workers.forEach(Thread::start);
+        indexers.forEach(Thread::start);
+    }
+
+    /**
+     * Returns a builder of bulk indexers.
+     *
+     * @param writer   the writer documents are added to
+     * @param analyzer analyzes the text fields of documents, typically an {@link
+     *                 ArabicRootExtractorAnalyzer}
+     * @return a new builder
+     */
+    public static Builder builder(IndexWriter writer, Analyzer analyzer) {
+        return new Builder(writer, analyzer);
+    }
+
+    /**
+     * Returns a factory of virtual threads if the JVM supports them, and of daemon platform
+     * threads otherwise; {@link #supportsVirtualThreads()} tells which.
+     *
+     * @return a thread factory
+     */
+    public static ThreadFactory virtualThreadFactory() {
+        ThreadFactory factory = VirtualThreads.FACTORY;
+        return factory != null ? factory : platformThreadFactory();
+    }
+
+    /**
+     * @return whether {@link #virtualThreadFactory()} creates virtual threads, which requires Java
+     * 21, or Java 19 and 20 with preview features enabled
+     */
+    public static boolean supportsVirtualThreads() {
+        return VirtualThreads.FACTORY != null;
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        return runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Queues a document, waiting while the analysis queue is full.
+     *
+     * @param fields the fields of the document; they must not be modified until the document is
+     *               added, which {@link #flush()} waits for
+     * @throws IOException if a previous document could not be analyzed or added, or the thread is
+     *                     interrupted while waiting
+     */
+    public void add(Iterable<? extends IndexableField> fields) throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("This bulk indexer is closed");
+            }
+            checkFailure();
+            submitted++;
+        }
+        try {
+            pending.put(new PendingDocument(fields));
+        } catch (InterruptedException e) {
+            complete();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing a document");
+        }
+    }
+
+    /**
+     * Waits until every queued document has been added to the writer. Added documents are not
+     * committed.
+     *
+     * @throws IOException if a document could not be analyzed or added, or the thread is
+     *                     interrupted while waiting
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            while (completed < submitted) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while flushing");
+                }
+            }
+            checkFailure();
+        }
+    }
+
+    /**
+     * @return the number of documents added to the writer so far
+     */
+    public long getAddedCount() {
+        synchronized (lock) {
+            return completed;
+        }
+    }
+
+    /**
+     * Waits until every queued document has been added to the writer, then stops the threads of
+     * this indexer.
+     *
+     * @throws IOException if a document could not be analyzed or added
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            flush();
+        } finally {
+            stop(pending, workers);
+            stop(analyzed, indexers);
+        }
+    }
+
+    private void analyze() {
+        try {
+            for (PendingDocument document = pending.take(); document != END;
+                document = pending.take()) {
+                if (failure.get() != null) {
+                    complete();
+                    continue;
+                }
+                try {
+                    document.analyze(analyzer);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    complete();
+                    continue;
+                }
+                analyzed.put(document);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void index() {
+        try {
+            for (PendingDocument document = analyzed.take(); document != END;
+                document = analyzed.take()) {
+                try {
+                    if (failure.get() == null) {
+                        writer.addDocument(document.fields);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    complete();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void complete() {
+        synchronized (lock) {
+            completed++;
+            lock.notifyAll();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw new IOException("Bulk indexing failed", t);
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+    }
+
+    private static void stop(BlockingQueue<PendingDocument> queue, List<Thread> threads) {
+        boolean interrupted = false;
+        for (int i = 0; i < threads.size(); ) {
+            try {
+                queue.put(END);
+                i++;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        for (int i = 0; i < threads.size(); ) {
+            try {
+                threads.get(i).join();
+                i++;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A document on its way to the writer.
+     */
+    private static final class PendingDocument {
+
+        private final Iterable<? extends IndexableField> source;
+        private List<IndexableField> fields;
+
+        PendingDocument(Iterable<? extends IndexableField> source) {
+            this.source = source;
+        }
+
+        void analyze(Analyzer analyzer) throws IOException {
+            fields = new ArrayList<>();
+            for (IndexableField field : source) {
+                IndexableFieldType type = field.fieldType();
+                if (!type.tokenized() || type.indexOptions() == IndexOptions.NONE
+                    || field instanceof Field && ((Field) field).tokenStreamValue() != null) {
+                    fields.add(field);
+                    continue;
+                }
+                String text = field.stringValue();
+                Reader reader = field.readerValue();
+                if (text == null && reader == null) {
+                    fields.add(field);
+                    continue;
+                }
+                TokenStream analyzed;
+                try (TokenStream stream = text != null ? analyzer.tokenStream(field.name(), text)
+                    : analyzer.tokenStream(field.name(), reader)) {
+                    analyzed = new AnalyzedTokenStream(stream);
+                }
+                if (type.stored()) {
+                    fields.add(new StoredField(field.name(), Objects.requireNonNull(text)));
+                    FieldType indexed = new FieldType(type);
+                    indexed.setStored(false);
+                    indexed.freeze();
+                    type = indexed;
+                }
+                fields.add(new Field(field.name(), analyzed, type));
+            }
+        }
+    }
+
+    /**
+     * The tokens of a field value, captured once and replayed each time the stream is reset.
+     */
+    private static final class AnalyzedTokenStream extends TokenStream {
+
+        private final List<State> states = new ArrayList<>();
+        private final State finalState;
+        private int next;
+
+        AnalyzedTokenStream(TokenStream source) throws IOException {
+            super(source.cloneAttributes());
+            source.reset();
+            while (source.incrementToken()) {
+                states.add(source.captureState());
+            }
+            source.end();
+            finalState = source.captureState();
+        }
+
+        @Override
+        public boolean incrementToken() {
+            if (next == states.size()) {
+                return false;
+            }
+            restoreState(states.get(next++));
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            restoreState(finalState);
+        }
+
+        @Override
+        public void reset() {
+            next = 0;
+        }
+    }
+
+    /**
+     * Builds {@link ArabicBulkIndexer}s.
+     */
+    public static final class Builder {
+
+        private final IndexWriter writer;
+        private final Analyzer analyzer;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int indexingThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        private int queueCapacity = 2 * Runtime.getRuntime().availableProcessors();
+        private ThreadFactory threadFactory = platformThreadFactory();
+
+        private Builder(IndexWriter writer, Analyzer analyzer) {
+            this.writer = Objects.requireNonNull(writer);
+            this.analyzer = Objects.requireNonNull(analyzer);
+        }
+
+        /**
+         * @param parallelism the number of analysis workers, the number of processors by default
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1, got "
+                    + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param indexingThreads the number of threads adding analyzed documents to the writer, a
+         *                        quarter of the number of processors by default
+         */
+        public Builder indexingThreads(int indexingThreads) {
+            if (indexingThreads < 1) {
+                throw new IllegalArgumentException("indexingThreads must be at least 1, got "
+                    + indexingThreads);
+            }
+            this.indexingThreads = indexingThreads;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity the number of documents waiting for analysis, and of analyzed
+         *                      documents waiting to be added, beyond which producers wait; twice
+         *                      the number of processors by default
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("queueCapacity must be at least 1, got "
+                    + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param threadFactory creates the analysis workers and indexing threads, e.g. {@link
+         *                      #virtualThreadFactory()}
+         */
+        public Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = Objects.requireNonNull(threadFactory);
+            return this;
+        }
+
+        public ArabicBulkIndexer build() {
+            return new ArabicBulkIndexer(this);
+        }
+    }
+
+    private static final class VirtualThreads {
+
+        static final ThreadFactory FACTORY = lookup();
+
+        private static ThreadFactory lookup() {
+            try {
+                // Thread.ofVirtual() returns a non-public class: its methods must be called
+                // through the public Thread.Builder interface
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Java 18 or older, or virtual threads are a preview feature not enabled
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArrayMap;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+import java.io.BufferedWriter;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the analysis chain over a text corpus and collects the statistics needed to tune it: surface
+ * form and root frequencies, unknown words and throughput. <p> Files are streamed through a {@link
+ * FileChannel} in fixed-size chunks, cut at whitespace, so corpora of any size are read in constant
+ * memory. The chunks are handed through a bounded queue to worker threads, each tokenizing them
+ * with an {@link ArabicSurfaceAnalyzer} and stemming the distinct forms it meets with its own
+ * stemmer. Workers count into private tables that are merged once the corpus is read. </p> <p>
+ * Usage: </p>
+ * <pre>
+ * java -cp lucene-arabic-analyzer.jar com.github.msarhan.lucene.ArabicCorpusStatistics \
+ *     output-directory corpus-file-or-directory...
+ * </pre>
+ * The output directory receives {@value #SURFACE_FREQUENCIES_FILE} and {@value #UNKNOWN_WORDS_FILE},
+ * usable as cache warm lists and as vocabularies for {@link ArabicRootDictionaryBuilder}, and
+ * {@value #ROOT_FREQUENCIES_FILE}, loadable with {@link ArabicRootFrequencies#load(Path)}. It
+ * must not be inside an input, so that a later run does not count the tables of this one.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicCorpusStatistics {
+
+    public static final String SURFACE_FREQUENCIES_FILE = "surface-frequencies.txt";
+    public static final String ROOT_FREQUENCIES_FILE = "root-frequencies.txt";
+    public static final String UNKNOWN_WORDS_FILE = "unknown-words.txt";
+
+    static final int CHUNK_SIZE = 1 << 20;
+    private static final char[] END = new char[0];
+    private static final String[] NO_ROOTS = new String[0];
+
+    private final Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory;
+    private final Analyzer analyzer;
+    private final int threads;
+
+    private final Map<String, Form> forms = new HashMap<>();
+    private final AtomicLong tokens = new AtomicLong();
+    private long files;
+    private long bytes;
+    private long nanos;
+
+    /**
+     * Builds a tool tokenizing with a default {@link ArabicSurfaceAnalyzer} on one thread per
+     * processor.
+     *
+     * @param stemmerFactory creates the stemmer of each worker
+     */
+    public ArabicCorpusStatistics(Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory) {
+        this(stemmerFactory, new ArabicSurfaceAnalyzer(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stemmerFactory creates the stemmer of each worker
+     * @param analyzer       tokenizes and normalizes the corpus, without stemming
+     * @param threads        the number of workers
+     */
+    public ArabicCorpusStatistics(Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory,
+        Analyzer analyzer, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, got " + threads);
+        }
+        this.stemmerFactory = stemmerFactory;
+        this.analyzer = analyzer;
+        this.threads = threads;
+    }
+
+    /**
+     * Adds the text of files to the statistics. Directories are walked recursively. Files are read
+     * as UTF-8; malformed input is replaced.
+     *
+     * @param paths files or directories
+     * @throws IOException if a file cannot be read
+     */
+    public void process(List<Path> paths) throws IOException {
+        long start = System.nanoTime();
+        BlockingQueue<char[]> queue = new ArrayBlockingQueue<>(threads * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(queue, failure);
+            worker.setName("arabic-corpus-statistics-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        try {
+            for (Path path : paths) {
+                List<Path> regularFiles;
+                try (Stream<Path> walk = Files.walk(path)) {
+                    regularFiles = walk.filter(Files::isRegularFile).sorted()
+                        .collect(Collectors.toList());
+                }
+                for (Path file : regularFiles) {
+                    read(file, queue, failure);
+                    this.files++;
+                }
+            }
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                put(queue, END);
+            }
+            for (Worker worker : workers) {
+                join(worker);
+            }
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+        for (Worker worker : workers) {
+            worker.forms.forEach((token, form) -> merge(token, form));
+        }
+        nanos += System.nanoTime() - start;
+    }
+
+    private void merge(Object token, Form form) {
+        String key = new String((char[]) token);
+        Form merged = forms.get(key);
+        if (merged == null) {
+            forms.put(key, form);
+        } else {
+            merged.count += form.count;
+        }
+    }
+
+    /**
+     * Streams a file to the workers in chunks ending at a whitespace.
+     */
+    private void read(Path file, BlockingQueue<char[]> queue, AtomicReference<Throwable> failure)
+        throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = ByteBuffer.allocate(CHUNK_SIZE);
+        CharBuffer out = CharBuffer.allocate(CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean done = false;
+            while (!done && failure.get() == null) {
+                int read = channel.read(in);
+                boolean eof = read < 0;
+                if (read > 0) {
+                    bytes += read;
+                }
+                in.flip();
+                CoderResult result = decoder.decode(in, out, eof);
+                done = eof && result.isUnderflow() && decoder.flush(out).isUnderflow();
+                in.compact();
+
+                out.flip();
+                int end = done ? out.limit() : lastWhitespace(out);
+                if (end == 0 && out.limit() == out.capacity()) {
+                    end = out.limit(); // a single token fills the chunk, cut it
+                }
+                if (end > 0) {
+                    char[] chunk = new char[end];
+                    out.get(chunk);
+                    put(queue, chunk);
+                }
+                out.compact();
+            }
+        }
+    }
+
+    private static int lastWhitespace(CharBuffer chars) {
+        for (int i = chars.limit() - 1; i >= 0; i--) {
+            if (Character.isWhitespace(chars.get(i))) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void put(BlockingQueue<char[]> queue, char[] chunk) {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the corpus", e);
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workers", e);
+        }
+    }
+
+    /**
+     * @return the number of occurrences of each surface form, most frequent first
+     */
+    public Map<String, Long> surfaceFrequencies() {
+        return sorted(forms.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().count)));
+    }
+
+    /**
+     * @return the number of occurrences of each root, most frequent first; an occurrence of a form
+     * counts once for each of its roots
+     */
+    public Map<String, Long> rootFrequencies() {
+        Map<String, Long> roots = new HashMap<>();
+        for (Form form : forms.values()) {
+            for (String root : form.roots) {
+                roots.merge(root, form.count, Long::sum);
+            }
+        }
+        return sorted(roots);
+    }
+
+    /**
+     * @return the number of occurrences of each surface form without any root, most frequent first
+     */
+    public Map<String, Long> unknownWords() {
+        return sorted(forms.entrySet().stream()
+            .filter(e -> e.getValue().roots.length == 0)
+            .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().count)));
+    }
+
+    private static Map<String, Long> sorted(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a,
+                LinkedHashMap::new));
+    }
+
+    public long getFileCount() {
+        return files;
+    }
+
+    public long getByteCount() {
+        return bytes;
+    }
+
+    public long getTokenCount() {
+        return tokens.get();
+    }
+
+    /**
+     * @return the number of distinct surface forms
+     */
+    public int getFormCount() {
+        return forms.size();
+    }
+
+    /**
+     * @return the time spent processing, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return nanos;
+    }
+
+    /**
+     * Writes the frequency tables and the unknown words to a directory, as UTF-8 files holding one
+     * entry per line, followed by a tab and its count.
+     *
+     * @param directory the output directory, created if needed
+     * @throws IOException if a file cannot be written
+     */
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        write(directory.resolve(SURFACE_FREQUENCIES_FILE), surfaceFrequencies());
+        write(directory.resolve(ROOT_FREQUENCIES_FILE), rootFrequencies());
+        write(directory.resolve(UNKNOWN_WORDS_FILE), unknownWords());
+    }
+
+    private static void write(Path file, Map<String, Long> counts) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write('\t');
+                writer.write(Long.toString(entry.getValue()));
+                writer.newLine();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format("%d files, %.1f MB, %d tokens, %d forms in %.1f s: %.0f tokens/s, "
+                + "%.1f MB/s", files, bytes / 1e6, getTokenCount(), forms.size(), seconds,
+            getTokenCount() / seconds, bytes / 1e6 / seconds);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ArabicCorpusStatistics <output directory> <input>...");
+            System.exit(1);
+        }
+
+        Path output = Paths.get(args[0]).toAbsolutePath().normalize();
+        List<Path> inputs = new ArrayList<>();
+        for (String input : Arrays.asList(args).subList(1, args.length)) {
+            Path path = Paths.get(input);
+            if (output.startsWith(path.toAbsolutePath().normalize())) {
+                System.err.println("The output directory " + output + " is inside the input "
+                    + path);
+                System.exit(1);
+            }
+            inputs.add(path);
+        }
+
+        ArabicRootCache cache = new ArabicRootCache();
+        ArabicCorpusStatistics statistics = new ArabicCorpusStatistics(
+            () -> new ArabicRootExtractorStemmer(cache));
+        statistics.process(inputs);
+        statistics.write(output);
+        System.out.println(statistics);
+        System.out.println(cache);
+    }
+
+    private static final class Form {
+
+        final String[] roots;
+        long count;
+
+        Form(String[] roots) {
+            this.roots = roots;
+        }
+    }
+
+    private final class Worker extends Thread {
+
+        private final BlockingQueue<char[]> queue;
+        private final AtomicReference<Throwable> failure;
+        private final CharArrayMap<Form> forms = new CharArrayMap<>(1 << 12, false);
+
+        Worker(BlockingQueue<char[]> queue, AtomicReference<Throwable> failure) {
+            this.queue = queue;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            ArabicRootExtractorStemmer stemmer = stemmerFactory.get();
+            ArabicRootBuffer roots = new ArabicRootBuffer();
+            try {
+                for (char[] chunk = queue.take(); chunk != END; chunk = queue.take()) {
+                    if (failure.get() == null) {
+                        count(chunk, stemmer, roots);
+                    }
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+                // keep draining so that the reader is never blocked
+                try {
+                    while (queue.take() != END) {
+                        // skip
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void count(char[] chunk, ArabicRootExtractorStemmer stemmer, ArabicRootBuffer roots)
+            throws IOException {
+            long count = 0;
+            try (TokenStream stream = analyzer.tokenStream("", new CharArrayReader(chunk))) {
+                CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+                stream.reset();
+                while (stream.incrementToken()) {
+                    Form form = forms.get(termAtt.buffer(), 0, termAtt.length());
+                    if (form == null) {
+                        stemmer.stem(termAtt.buffer(), 0, termAtt.length(), roots);
+                        form = new Form(roots.isEmpty() ? NO_ROOTS
+                            : roots.toSet().toArray(NO_ROOTS));
+                        forms.put(Arrays.copyOf(termAtt.buffer(), termAtt.length()), form);
+                    }
+                    form.count++;
+                    count++;
+                }
+                stream.end();
+            }
+            tokens.addAndGet(count);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.DecimalDigitFilter;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.core.StopFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+
+import java.io.IOException;
+
+/**
+ * Folds the front of the Arabic analysis chain into a single pass over each token: strips
+ * tatweel and harakat, lowercases, folds decimal digits to ASCII and drops stop words. Placed
+ * right after a {@link org.apache.lucene.analysis.standard.StandardTokenizer} reading the raw
+ * text, it produces the same tokens as an {@link ArabicNormalizationCharFilter} followed by the
+ * tokenizer, {@link LowerCaseFilter}, {@link DecimalDigitFilter} and {@link StopFilter}.
+ * <p>
+ * Tokens made only of stripped characters are dropped without leaving a position gap, as the
+ * char filter never lets the tokenizer see them; stop words leave a gap like {@link
+ * StopFilter}. Stripped characters leading a token are left out of its offsets, as the char
+ * filter does.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicFoldingFilter extends TokenFilter {
+
+    private final CharArraySet stopwords;
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final PositionIncrementAttribute posIncAtt =
+        addAttribute(PositionIncrementAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private int skippedPositions;
+
+    /**
+     * @param input     the token stream to fold
+     * @param stopwords the stop words to drop, compared after folding
+     */
+    public ArabicFoldingFilter(TokenStream input, CharArraySet stopwords) {
+        super(input);
+        this.stopwords = stopwords;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        skippedPositions = 0;
+        while (input.incrementToken()) {
+            char[] buffer = termAtt.buffer();
+            int length = termAtt.length();
+            int leading = 0;
+            while (leading < length && ArabicNormalizer.isRemoved(buffer[leading])) {
+                leading++;
+            }
+            if (leading == length) {
+                continue;
+            }
+            int folded = fold(buffer, length);
+            if (stopwords.contains(buffer, 0, folded)) {
+                skippedPositions += posIncAtt.getPositionIncrement();
+                continue;
+            }
+            termAtt.setLength(folded);
+            int startOffset = offsetAtt.startOffset();
+            int endOffset = offsetAtt.endOffset();
+            if (leading != 0 && endOffset - startOffset == length) {
+                offsetAtt.setOffset(startOffset + leading, endOffset);
+            }
+            if (skippedPositions != 0) {
+                posIncAtt.setPositionIncrement(
+                    posIncAtt.getPositionIncrement() + skippedPositions);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        skippedPositions = 0;
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        posIncAtt.setPositionIncrement(posIncAtt.getPositionIncrement() + skippedPositions);
+    }
+
+    /**
+     * Folds {@code buffer} in place, mirroring the stripping of {@link ArabicNormalizer}, the code
+     * point lowercasing of {@link LowerCaseFilter} and the digit folding of {@link
+     * DecimalDigitFilter}.
+     *
+     * @return the folded length
+     */
+    static int fold(char[] buffer, int length) {
+        int written = 0;
+        for (int i = 0; i < length; ) {
+            int c = Character.codePointAt(buffer, i, length);
+            i += Character.charCount(c);
+            if (c < Character.MIN_SUPPLEMENTARY_CODE_POINT
+                && ArabicNormalizer.isRemoved((char) c)) {
+                continue;
+            }
+            c = Character.toLowerCase(c);
+            if (c > 0x7F && Character.isDigit(c)) {
+                buffer[written++] = (char) ('0' + Character.getNumericValue(c));
+            } else {
+                written += Character.toChars(c, buffer, written);
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.ar.ArabicStemmer;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * An {@link ArabicStemmingBackend} that strips the prefixes and suffixes of a token with Lucene's
+ * light {@link ArabicStemmer}, without any morphological analysis.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicLightStemmingBackend implements ArabicStemmingBackend {
+
+    private final ArabicStemmer stemmer = new ArabicStemmer();
+    private char[] scratch = new char[16];
+
+    @Override
+    public void stem(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+        roots.clear();
+        scratch = ArrayUtil.grow(scratch, length);
+        System.arraycopy(buffer, offset, scratch, 0, length);
+        roots.add(scratch, 0, stemmer.stem(scratch, length));
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import AlKhalil2.morphology.analyzer.AnalyzerTokens;
+import AlKhalil2.morphology.result.model.Result;
+import AlKhalil2.stemmer.Stemming;
+import AlKhalil2.stemmer.model.Segment;
+import AlKhalil2.util.Settings;
+
+import org.apache.lucene.util.CloseableThreadLocal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * The AlKhalil morphological analyzer, shared by every {@link ArabicRootExtractorStemmer} of a
+ * process. <p> AlKhalil's {@link AnalyzerTokens} is not thread-safe: it keeps intermediate results
+ * in its own fields. An engine may be shared by any number of threads; it gives each thread its own
+ * {@link AnalyzerTokens}, created the first time that thread analyzes a word and reused for every
+ * later word. Creating one parses AlKhalil's clitic files, so threads should be long-lived. </p>
+ * <p> The analyzers of every thread read a single copy of the lexicon: engines without a snapshot
+ * share one for the whole JVM, loaded the first time any of them analyzes a word. The partitions of
+ * roots, formulas and patterns are loaded the first time a word needs them, one at a time under a
+ * JVM-wide lock, since AlKhalil locates their files through static fields. Loaded partitions are
+ * read without locking, so threads only contend while a partition they need is loaded. </p> <p>
+ * AlKhalil reads the kind of results it produces from the JVM-global {@link Settings}. Engines
+ * configure them once, when this class is initialized, and never change them afterwards; analysis
+ * only reads them. Code that calls {@code Settings.changeSettings} elsewhere in the same JVM
+ * changes the results of every engine. The database words are looked up in is the {@linkplain
+ * AlKhalilDatabase#current() current} {@link AlKhalilDatabase}, which can no longer change once an
+ * engine has analyzed a word. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicMorphologyEngine implements Closeable {
+
+    /**
+     * The length under which {@link #stripClitics} does not strip clitics off a word.
+     */
+    public static final int MIN_CLITIC_STEM_LENGTH = 3;
+
+    private final AlKhalilSnapshot snapshot;
+    private final ArabicRootExtractorListener listener;
+    private final CloseableThreadLocal<AnalyzerTokens> analyzerTokens = new CloseableThreadLocal<>();
+    private final CloseableThreadLocal<Stemming> stemming = new CloseableThreadLocal<>();
+
+    /**
+     * Builds an engine that loads the AlKhalil database from its XML files, into the lexicon shared
+     * by every engine without a snapshot.
+     */
+    public ArabicMorphologyEngine() {
+        this(null);
+    }
+
+    /**
+     * Builds an engine that loads the AlKhalil database from a binary snapshot, so each thread gets
+     * an analyzer without parsing the XML files the snapshot contains.
+     *
+     * @param snapshot a snapshot of the AlKhalil database, or {@code null} to load it from XML
+     */
+    public ArabicMorphologyEngine(AlKhalilSnapshot snapshot) {
+        this(snapshot, null);
+    }
+
+    /**
+     * Builds an engine whose stemmers and stem filters report every token to {@code listener}.
+     *
+     * @param snapshot a snapshot of the AlKhalil database, or {@code null} to load it from XML
+     * @param listener receives an event per token, or {@code null} to disable instrumentation at
+     *                 no cost
+     */
+    public ArabicMorphologyEngine(AlKhalilSnapshot snapshot, ArabicRootExtractorListener listener) {
+        this.snapshot = snapshot;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the engine used by stemmers that are not given one. It is created on first use and
+     * lives as long as the JVM.
+     *
+     * @return the default engine
+     */
+    public static ArabicMorphologyEngine getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * @return the listener of this engine, or {@code null} if instrumentation is disabled
+     */
+    public ArabicRootExtractorListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Extracts the roots of a word. Words without a root contribute their stem instead.
+     *
+     * @param buffer word chars
+     * @param offset offset of the word in {@code buffer}
+     * @param length length of the word
+     * @param roots  receives the roots of the word
+     */
+    public void analyze(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+        for (Object o : analyzerTokens().analyzerToken(new String(buffer, offset, length))) {
+            Result res = (Result) o;
+            roots.add(!"#".equals(res.getRoot()) ? res.getRoot() : res.getStem());
+        }
+    }
+
+    /**
+     * Extracts both the stems and the roots of a word from a single analysis. Words without a root
+     * contribute their stem to {@code roots} as well.
+     *
+     * @param buffer word chars
+     * @param offset offset of the word in {@code buffer}
+     * @param length length of the word
+     * @param stems  receives the stems of the word
+     * @param roots  receives the roots of the word
+     */
+    public void analyze(char[] buffer, int offset, int length, ArabicRootBuffer stems,
+        ArabicRootBuffer roots) {
+        for (Object o : analyzerTokens().analyzerToken(new String(buffer, offset, length))) {
+            Result res = (Result) o;
+            stems.add(res.getStem());
+            roots.add(!"#".equals(res.getRoot()) ? res.getRoot() : res.getStem());
+        }
+    }
+
+    /**
+     * Extracts the stems of a word, without its roots.
+     *
+     * @param buffer word chars
+     * @param offset offset of the word in {@code buffer}
+     * @param length length of the word
+     * @param stems  receives the stems of the word
+     */
+    public void analyzeStems(char[] buffer, int offset, int length, ArabicRootBuffer stems) {
+        for (Object o : analyzerTokens().analyzerToken(new String(buffer, offset, length))) {
+            stems.add(((Result) o).getStem());
+        }
+    }
+
+    /**
+     * Strips the proclitics and enclitics of a word with AlKhalil's clitic stemmer, without
+     * looking the word up in the database. Of the segmentations the stemmer finds, those leaving
+     * the shortest stem of at least {@link #MIN_CLITIC_STEM_LENGTH} letters are kept; words
+     * without such a segmentation are their own stem.
+     *
+     * @param buffer word chars
+     * @param offset offset of the word in {@code buffer}
+     * @param length length of the word
+     * @param stems  receives the stems of the word
+     */
+    public void stripClitics(char[] buffer, int offset, int length, ArabicRootBuffer stems) {
+        String word = new String(buffer, offset, length);
+        List<?> segments = stemming().getListsSegment(word);
+        int shortest = Integer.MAX_VALUE;
+        for (Object o : segments) {
+            int stemLength = ((Segment) o).getStem().length();
+            if (stemLength >= MIN_CLITIC_STEM_LENGTH && stemLength < shortest) {
+                shortest = stemLength;
+            }
+        }
+        if (shortest == Integer.MAX_VALUE) {
+            stems.add(word);
+            return;
+        }
+        for (Object o : segments) {
+            String stem = ((Segment) o).getStem();
+            if (stem.length() == shortest) {
+                stems.add(stem);
+            }
+        }
+    }
+
+    private Stemming stemming() {
+        Stemming s = stemming.get();
+        if (s == null) {
+            s = new Stemming();
+            stemming.set(s);
+        }
+        return s;
+    }
+
+    private AnalyzerTokens analyzerTokens() {
+        AnalyzerTokens tokens = analyzerTokens.get();
+        if (tokens == null) {
+            tokens = newAnalyzerTokens();
+            analyzerTokens.set(tokens);
+        }
+        return tokens;
+    }
+
+    private AnalyzerTokens newAnalyzerTokens() {
+        if (snapshot == null) {
+            return AlKhalilLexicon.shared().newAnalyzerTokens();
+        }
+        AlKhalilDatabase.markInUse();
+        try {
+            return snapshot.newAnalyzerTokens();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Releases the analyzers and clitic stemmers of every thread. The engine must not be used
+     * afterwards.
+     */
+    @Override
+    public void close() {
+        analyzerTokens.close();
+        stemming.close();
+    }
+
+    private static class DefaultHolder {
+
+        static final ArabicMorphologyEngine DEFAULT = new ArabicMorphologyEngine();
+    }
+
+    static {
+        Settings.changeSettings(
+            false,
+            false,
+            true, // stem
+            false,
+            false,
+            false,
+            false,
+            false,
+            true, // root
+            false,
+            false
+        );
+    }
+}
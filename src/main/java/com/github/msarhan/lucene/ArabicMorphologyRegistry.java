@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A JVM-wide, reference-counted registry of the engines, caches and dictionaries used by {@link
+ * ArabicRootExtractorStemFilterFactory}. <p> A node may host dozens of Solr cores or Elasticsearch
+ * indices configured alike. Resources acquired with the same configuration are created once and
+ * shared by every holder of a {@link Lease}; they are closed when the last lease is closed. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicMorphologyRegistry {
+
+    private static final ArabicMorphologyRegistry INSTANCE = new ArabicMorphologyRegistry();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    ArabicMorphologyRegistry() {
+    }
+
+    /**
+     * @return the registry of this JVM
+     */
+    public static ArabicMorphologyRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Acquires an engine loading the AlKhalil database from a snapshot file.
+     *
+     * @param snapshot the snapshot file
+     * @return a lease on the engine, shared with every lease on the same file
+     * @throws IOException if the snapshot cannot be opened
+     */
+    public Lease<ArabicMorphologyEngine> acquireEngine(Path snapshot) throws IOException {
+        Path path = snapshot.toAbsolutePath().normalize();
+        return acquire("engine:" + path,
+            () -> new ArabicMorphologyEngine(AlKhalilSnapshot.open(path)));
+    }
+
+    /**
+     * Acquires a root cache.
+     *
+     * @param maxSize maximum number of cached words
+     * @return a lease on the cache, shared with every lease on a cache of the same size
+     */
+    public Lease<ArabicRootCache> acquireCache(int maxSize) {
+        return acquireCache(maxSize, ArabicAnalysisDepth.ROOT);
+    }
+
+    /**
+     * Acquires a cache for stemmers of the given depth.
+     *
+     * @param maxSize maximum number of cached words
+     * @param depth   the depth of the stemmers using the cache
+     * @return a lease on the cache, shared with every lease on a cache of the same size and depth
+     */
+    public Lease<ArabicRootCache> acquireCache(int maxSize, ArabicAnalysisDepth depth) {
+        String key = depth == ArabicAnalysisDepth.ROOT
+            ? "cache:" + maxSize : "cache:" + depth + ":" + maxSize;
+        try {
+            return acquire(key, () -> new ArabicRootCache(maxSize));
+        } catch (IOException e) {
+            throw new AssertionError(e); // creating a cache does not do any I/O
+        }
+    }
+
+    /**
+     * Acquires a precompiled root dictionary.
+     *
+     * @param path the dictionary file
+     * @return a lease on the dictionary, shared with every lease on the same file
+     * @throws IOException if the dictionary cannot be opened
+     */
+    public Lease<ArabicRootDictionary> acquireDictionary(Path path) throws IOException {
+        Path normalized = path.toAbsolutePath().normalize();
+        return acquire("dictionary:" + normalized, () -> ArabicRootDictionary.open(normalized));
+    }
+
+    /**
+     * @return the number of resources currently held
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> Lease<T> acquire(String key, Loader<T> loader) throws IOException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, loader.load());
+            entries.put(key, entry);
+        }
+        entry.references++;
+        return new Lease<>(this, entry, (T) entry.value);
+    }
+
+    private void release(Entry entry) throws IOException {
+        synchronized (this) {
+            if (--entry.references > 0) {
+                return;
+            }
+            entries.remove(entry.key);
+        }
+        if (entry.value instanceof Closeable) {
+            ((Closeable) entry.value).close();
+        }
+    }
+
+    /**
+     * A reference to a shared resource. The resource must not be used once the lease is closed.
+     *
+     * @param <T> the type of the resource
+     */
+    public static final class Lease<T> implements Closeable {
+
+        private final ArabicMorphologyRegistry registry;
+        private final Entry entry;
+        private final T value;
+        private boolean closed;
+
+        private Lease(ArabicMorphologyRegistry registry, Entry entry, T value) {
+            this.registry = registry;
+            this.entry = entry;
+            this.value = value;
+        }
+
+        public T get() {
+            return value;
+        }
+
+        /**
+         * Releases the resource, which is closed if no other lease holds it. Closing a lease twice
+         * has no effect.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                registry.release(entry);
+            }
+        }
+    }
+
+    private interface Loader<T> {
+
+        T load() throws IOException;
+    }
+
+    private static final class Entry {
+
+        final String key;
+        final Object value;
+        int references;
+
+        Entry(String key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
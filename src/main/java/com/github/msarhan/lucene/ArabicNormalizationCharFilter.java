@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.charfilter.BaseCharFilter;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A {@link org.apache.lucene.analysis.CharFilter} that removes the characters stripped by {@link
+ * ArabicNormalizer} (tatweel and harakat) before the text reaches the tokenizer. Offsets of the
+ * produced tokens are corrected to point into the original text.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicNormalizationCharFilter extends BaseCharFilter {
+
+    private int outputOffset;
+    private int removed;
+    private int correctedRemoved;
+
+    public ArabicNormalizationCharFilter(Reader in) {
+        super(in);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            int read = input.read(cbuf, off, len);
+            if (read == -1) {
+                correct();
+                return -1;
+            }
+
+            int kept = off;
+            for (int i = off, end = off + read; i < end; i++) {
+                char c = cbuf[i];
+                if (ArabicNormalizer.isRemoved(c)) {
+                    removed++;
+                } else {
+                    outputOffset++;
+                    if (removed != correctedRemoved) {
+                        addOffCorrectMap(outputOffset - 1, removed);
+                        correctedRemoved = removed;
+                    }
+                    cbuf[kept++] = c;
+                }
+            }
+            if (kept > off) {
+                return kept - off;
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (true) {
+            int c = input.read();
+            if (c == -1) {
+                correct();
+                return -1;
+            }
+            if (ArabicNormalizer.isRemoved((char) c)) {
+                removed++;
+            } else {
+                outputOffset++;
+                if (removed != correctedRemoved) {
+                    addOffCorrectMap(outputOffset - 1, removed);
+                    correctedRemoved = removed;
+                }
+                return c;
+            }
+        }
+    }
+
+    private void correct() {
+        if (removed != correctedRemoved) {
+            addOffCorrectMap(outputOffset, removed);
+            correctedRemoved = removed;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.github.msarhan.lucene;
 
-import static org.apache.lucene.analysis.util.StemmerUtil.delete;
-
 /**
+ * Removes tatweel and harakat from Arabic text. <p> Characters are classified with a lookup table
+ * and the buffer is compacted in a single pass, so the cost is linear in the token length however
+ * many diacritics it carries. </p>
+ *
  * @author Mouaffak A. Sarhan
  */
 public final class ArabicNormalizer {
@@ -18,27 +20,36 @@ public final class ArabicNormalizer {
     public static final char SHADDA = '\u0651';
     public static final char SUKUN = '\u0652';
 
+    private static final boolean[] REMOVED = new boolean[SUKUN + 1];
+
+    static {
+        REMOVED[TATWEEL] = true;
+        for (char c = FATHATAN; c <= SUKUN; c++) {
+            REMOVED[c] = true;
+        }
+    }
+
+    /**
+     * @return whether {@code c} is removed by this normalizer
+     */
+    public static boolean isRemoved(char c) {
+        return c <= SUKUN && REMOVED[c];
+    }
+
     public int normalize(char s[], int len) {
-        for (int i = 0; i < len; i++) {
-            switch (s[i]) {
-                case TATWEEL:
-                case KASRATAN:
-                case DAMMATAN:
-                case FATHATAN:
-                case FATHA:
-                case DAMMA:
-                case KASRA:
-                case SHADDA:
-                case SUKUN:
-                    len = delete(s, i, len);
-                    i--;
-                    break;
-                default:
-                    break;
+        int i = 0;
+        while (i < len && !isRemoved(s[i])) {
+            i++;
+        }
+        int newLen = i;
+        for (; i < len; i++) {
+            char c = s[i];
+            if (!isRemoved(c)) {
+                s[newLen++] = c;
             }
         }
 
-        return len;
+        return newLen;
     }
 
 }
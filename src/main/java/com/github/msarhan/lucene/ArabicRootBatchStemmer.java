@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Extracts the roots of many tokens at once, outside of any Lucene analysis chain. <p> Tokens are
+ * deduplicated first, then the distinct forms are stemmed by up to {@code parallelism} workers
+ * running on an {@link Executor}. Each worker owns an {@link ArabicRootExtractorStemmer}; stemmers
+ * are kept between batches so that later batches run against warm stemmers. </p> <p> Instances are
+ * thread-safe. </p>
+ * <pre>
+ * ArabicRootCache cache = new ArabicRootCache();
+ * ArabicRootBatchStemmer batch = new ArabicRootBatchStemmer(() -&gt; new ArabicRootExtractorStemmer(cache));
+ * Map&lt;String, Set&lt;String&gt;&gt; roots = batch.stem(Files.lines(vocabulary));
+ * </pre>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicRootBatchStemmer {
+
+    private final Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory;
+    private final Executor executor;
+    private final int parallelism;
+    private final Queue<ArabicRootExtractorStemmer> stemmers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Builds a batch stemmer running on the common {@link ForkJoinPool}.
+     *
+     * @param stemmerFactory creates the stemmer of each worker
+     */
+    public ArabicRootBatchStemmer(Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory) {
+        this(stemmerFactory, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Builds a batch stemmer running on a caller-supplied executor.
+     *
+     * @param stemmerFactory creates the stemmer of each worker
+     * @param executor       runs the workers
+     * @param parallelism    the maximum number of workers used by a batch
+     */
+    public ArabicRootBatchStemmer(Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory,
+        Executor executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, got " + parallelism);
+        }
+        this.stemmerFactory = Objects.requireNonNull(stemmerFactory);
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Extracts the roots of every distinct token of {@code tokens}.
+     *
+     * @param tokens the tokens, possibly repeated
+     * @return a map from each distinct token, in order of first occurrence, to its roots; unknown
+     * words map to an empty set
+     */
+    public Map<String, Set<String>> stem(Collection<String> tokens) {
+        return stem(new ArrayList<>(new LinkedHashSet<>(tokens)));
+    }
+
+    /**
+     * Extracts the roots of every distinct token of {@code tokens}. The stream is consumed on the
+     * calling thread.
+     *
+     * @param tokens the tokens, possibly repeated
+     * @return a map from each distinct token, in order of first occurrence, to its roots; unknown
+     * words map to an empty set
+     */
+    public Map<String, Set<String>> stem(Stream<String> tokens) {
+        return stem(tokens.distinct().collect(Collectors.toList()));
+    }
+
+    private Map<String, Set<String>> stem(List<String> forms) {
+        List<Set<String>> roots = new ArrayList<>(Collections.nCopies(forms.size(), null));
+        AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(parallelism, forms.size());
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> work(forms, roots, next), executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        Map<String, Set<String>> result = new LinkedHashMap<>(forms.size() * 4 / 3 + 1);
+        for (int i = 0; i < forms.size(); i++) {
+            result.put(forms.get(i), roots.get(i));
+        }
+        return result;
+    }
+
+    private void work(List<String> forms, List<Set<String>> roots, AtomicInteger next) {
+        ArabicRootExtractorStemmer stemmer = stemmers.poll();
+        if (stemmer == null) {
+            stemmer = stemmerFactory.get();
+        }
+        try {
+            ArabicRootBuffer buffer = new ArabicRootBuffer();
+            for (int i = next.getAndIncrement(); i < forms.size(); i = next.getAndIncrement()) {
+                char[] chars = forms.get(i).toCharArray();
+                stemmer.stem(chars, 0, chars.length, buffer);
+                roots.set(i, buffer.toSet());
+            }
+        } catch (RuntimeException e) {
+            // stop the other workers early, before they pick up another form
+            next.set(forms.size());
+            throw e;
+        } finally {
+            stemmers.offer(stemmer);
+        }
+    }
+}
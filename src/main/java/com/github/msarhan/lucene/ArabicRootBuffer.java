@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.util.ArrayUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A reusable, ordered set of roots written by {@link ArabicRootExtractorStemmer}. <p> Roots are
+ * stored back to back in a single {@code char[]}, so that filling and reading the buffer for every
+ * token does not allocate once it has grown to the size of the largest root set. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicRootBuffer {
+
+    private char[] chars;
+    private int[] ends;
+    private int size;
+
+    public ArabicRootBuffer() {
+        this(16, 4);
+    }
+
+    private ArabicRootBuffer(int charCapacity, int rootCapacity) {
+        this.chars = new char[charCapacity];
+        this.ends = new int[rootCapacity];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the number of roots in this buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the backing array, root {@code i} starts at {@link #offset(int)} and spans {@link
+     * #length(int)} chars
+     */
+    public char[] chars() {
+        return chars;
+    }
+
+    public int offset(int i) {
+        return i == 0 ? 0 : ends[i - 1];
+    }
+
+    public int length(int i) {
+        return ends[i] - offset(i);
+    }
+
+    /**
+     * Adds a root unless it is already in this buffer.
+     *
+     * @return {@code true} if the root was added
+     */
+    public boolean add(char[] root, int offset, int length) {
+        if (contains(root, offset, length)) {
+            return false;
+        }
+
+        int end = offset(size) + length;
+        chars = ArrayUtil.grow(chars, end);
+        ends = ArrayUtil.grow(ends, size + 1);
+        System.arraycopy(root, offset, chars, offset(size), length);
+        ends[size++] = end;
+        return true;
+    }
+
+    /**
+     * Adds a root unless it is already in this buffer.
+     *
+     * @return {@code true} if the root was added
+     */
+    public boolean add(CharSequence root) {
+        int length = root.length();
+        int start = offset(size);
+        chars = ArrayUtil.grow(chars, start + length);
+        for (int i = 0; i < length; i++) {
+            chars[start + i] = root.charAt(i);
+        }
+        if (contains(chars, start, length)) {
+            return false;
+        }
+        ends = ArrayUtil.grow(ends, size + 1);
+        ends[size++] = start + length;
+        return true;
+    }
+
+    /**
+     * Adds every root of {@code other} that is not already in this buffer.
+     */
+    public void addAll(ArabicRootBuffer other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.chars, other.offset(i), other.length(i));
+        }
+    }
+
+    public boolean contains(char[] root, int offset, int length) {
+        for (int i = 0; i < size; i++) {
+            if (Arrays.equals(chars, offset(i), ends[i], root, offset, offset + length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the roots whose flag in {@code keep} is {@code false}, preserving the order of the
+     * others.
+     */
+    void retain(boolean[] keep) {
+        int retained = 0;
+        int end = 0;
+        for (int i = 0, start = 0; i < size; i++) {
+            int stop = ends[i];
+            if (keep[i]) {
+                System.arraycopy(chars, start, chars, end, stop - start);
+                end += stop - start;
+                ends[retained++] = end;
+            }
+            start = stop;
+        }
+        size = retained;
+    }
+
+    /**
+     * @return an exact-size copy of this buffer, suitable for long-lived storage
+     */
+    public ArabicRootBuffer copy() {
+        ArabicRootBuffer copy = new ArabicRootBuffer(Math.max(offset(size), 1), Math.max(size, 1));
+        copy.addAll(this);
+        return copy;
+    }
+
+    /**
+     * @return a new, ordered and unmodifiable set holding the roots of this buffer
+     */
+    public Set<String> toSet() {
+        Set<String> roots = new LinkedHashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            roots.add(new String(chars, offset(i), length(i)));
+        }
+        return Collections.unmodifiableSet(roots);
+    }
+
+    @Override
+    public String toString() {
+        return toSet().toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,239 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.CharsRef;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of the roots extracted for a surface form. <p> One instance is meant
+ * to be shared by every {@link ArabicRootExtractorStemmer} of an analyzer, so that a word analyzed
+ * by one indexing thread is not analyzed again by another. Lookups are lock free and allocation
+ * free; only inserting a new word takes a lock, which is negligible next to the morphological
+ * analysis that produced it.
+ * </p> <p> Eviction follows a generalized CLOCK policy: every entry carries a small saturating
+ * frequency counter that is bumped on each hit, and the clock hand decrements counters until it
+ * finds an entry that was not used since its last visit. Frequent words therefore survive bursts
+ * of rare ones. </p> <p> A cache can be backed by an {@link ArabicRootStore}: words missing from
+ * memory are then looked up in the store, and newly analyzed words are appended to it, so the
+ * cache starts warm after a restart. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicRootCache {
+
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+
+    private static final int MAX_FREQUENCY = 7;
+
+    private final int maxSize;
+    private final ArabicRootStore store;
+    private final ConcurrentHashMap<CharsRef, Entry> map;
+    private Entry[] clock = new Entry[0];
+    private int size;
+    private int hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Builds a cache holding at most {@link #DEFAULT_MAX_SIZE} words.
+     */
+    public ArabicRootCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Builds a cache holding at most {@code maxSize} words.
+     *
+     * @param maxSize maximum number of cached words
+     */
+    public ArabicRootCache(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Builds a cache holding at most {@code maxSize} words in memory, backed by a persistent
+     * store.
+     *
+     * @param maxSize maximum number of cached words
+     * @param store   a store consulted for the words missing from memory, and extended with the
+     *                words put in this cache unless it is read-only; or {@code null}. It is not
+     *                closed by this cache
+     */
+    public ArabicRootCache(int maxSize, ArabicRootStore store) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0, got: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.store = store;
+        this.map = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16));
+    }
+
+    /**
+     * Copies the roots cached for {@code token} into {@code roots}. Does not allocate, unless the
+     * word is only found in the store.
+     *
+     * @param token surface form, as it reaches the stemmer
+     * @param roots receives the cached roots, nothing is added if the word is unknown
+     * @return {@code true} if the word is cached
+     */
+    public boolean get(CharsRef token, ArabicRootBuffer roots) {
+        Entry entry = map.get(token);
+        if (entry == null) {
+            if (store != null && store.get(token, roots)) {
+                hits.increment();
+                storeHits.increment();
+                insert(new Entry(CharsRef.deepCopyOf(token), roots.copy()));
+                return true;
+            }
+            misses.increment();
+            return false;
+        }
+
+        hits.increment();
+        entry.touch();
+        roots.addAll(entry.roots);
+        return true;
+    }
+
+    /**
+     * Caches the roots of {@code token}. Both arguments are copied, so the caller is free to reuse
+     * them. If another thread cached the same word meanwhile, its entry is kept.
+     *
+     * @param token surface form, as it reaches the stemmer
+     * @param roots roots of the word, empty if the word is unknown
+     */
+    public void put(CharsRef token, ArabicRootBuffer roots) {
+        if (insert(new Entry(CharsRef.deepCopyOf(token), roots.copy()))
+            && store != null && !store.isReadOnly()) {
+            store.put(token, roots);
+        }
+    }
+
+    private synchronized boolean insert(Entry entry) {
+        if (map.putIfAbsent(entry.token, entry) != null) {
+            return false;
+        }
+
+        if (size < maxSize) {
+            if (size == clock.length) {
+                // grown on demand, a large cache used for a small vocabulary stays small
+                clock = ArrayUtil.growExact(clock, Math.min(maxSize,
+                    ArrayUtil.oversize(size + 1, RamUsageEstimator.NUM_BYTES_OBJECT_REF)));
+            }
+            clock[size++] = entry;
+            return true;
+        }
+
+        while (clock[hand].frequency > 0) {
+            clock[hand].frequency--;
+            hand = (hand + 1) % maxSize;
+        }
+        map.remove(clock[hand].token);
+        evictions.increment();
+        clock[hand] = entry;
+        hand = (hand + 1) % maxSize;
+        return true;
+    }
+
+    /**
+     * Removes every word cached in memory. Counters and the store are kept.
+     */
+    public synchronized void clear() {
+        map.clear();
+        for (int i = 0; i < size; i++) {
+            clock[i] = null;
+        }
+        size = 0;
+        hand = 0;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of hits answered by the store rather than from memory
+     */
+    public long storeHitCount() {
+        return storeHits.sum();
+    }
+
+    /**
+     * @return the persistent store backing this cache, or {@code null}
+     */
+    public ArabicRootStore getStore() {
+        return store;
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ArabicRootCache{size=" + size() + ", maxSize=" + maxSize + ", hits=" + hitCount()
+            + ", misses=" + missCount() + ", evictions=" + evictionCount() + "}";
+    }
+
+    private static final class Entry {
+
+        final CharsRef token;
+        final ArabicRootBuffer roots;
+
+        // racy on purpose, a lost increment only makes eviction slightly less accurate
+        int frequency;
+
+        Entry(CharsRef token, ArabicRootBuffer roots) {
+            this.token = token;
+            this.roots = roots;
+        }
+
+        void touch() {
+            if (frequency < MAX_FREQUENCY) {
+                frequency++;
+            }
+        }
+    }
+}
\ No newline at end of file
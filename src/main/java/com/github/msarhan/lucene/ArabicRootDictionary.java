@@ -0,0 +1,285 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.CharsRef;
+import org.apache.lucene.util.CharsRefBuilder;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.CharSequenceOutputs;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.FSTCompiler;
+import org.apache.lucene.util.fst.IntsRefFSTEnum;
+import org.apache.lucene.util.fst.OffHeapFSTStore;
+import org.apache.lucene.util.fst.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.BiConsumer;
+
+/**
+ * A precompiled surface form to roots dictionary, stored as a Lucene {@link FST}. <p> Dictionaries
+ * are built once with {@link ArabicRootDictionaryBuilder} and opened memory-mapped, so the FST
+ * stays off heap and a single file can be shared by every process on a host. Words that were
+ * analyzed but have no root are stored as well, so that they are not analyzed again. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootDictionaryStemmer
+ */
+public final class ArabicRootDictionary implements Closeable {
+
+    static final String CODEC_NAME = "ArabicRootDictionary";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    /**
+     * Separates the roots of a word in the FST output.
+     */
+    static final char ROOT_SEPARATOR = ' ';
+
+    private final Directory directory;
+    private final IndexInput input;
+    private final FST<CharsRef> fst;
+    private final long size;
+
+    private ArabicRootDictionary(Directory directory, IndexInput input) throws IOException {
+        this.directory = directory;
+        this.input = input;
+        CodecUtil.checkHeader(input, CODEC_NAME, VERSION_START, VERSION_CURRENT);
+        this.size = input.readVLong();
+        this.fst = new FST<>(input, input, CharSequenceOutputs.getSingleton(), new OffHeapFSTStore());
+        CodecUtil.retrieveChecksum(input);
+    }
+
+    /**
+     * Opens a dictionary file written by {@link ArabicRootDictionaryBuilder}. The file is memory
+     * mapped and stays open until {@link #close()} is called.
+     *
+     * @param path the dictionary file
+     * @return the opened dictionary
+     * @throws IOException if the file cannot be read or is not a valid dictionary
+     */
+    public static ArabicRootDictionary open(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Directory directory = new MMapDirectory(absolute.getParent());
+        IndexInput input = null;
+        boolean success = false;
+        try {
+            input = directory.openInput(absolute.getFileName().toString(), IOContext.READ);
+            ArabicRootDictionary dictionary = new ArabicRootDictionary(directory, input);
+            success = true;
+            return dictionary;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(input, directory);
+            }
+        }
+    }
+
+    /**
+     * Writes a dictionary file.
+     *
+     * @param entries words and their roots, sorted by word
+     * @param path    the dictionary file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    static void write(SortedMap<String, Set<String>> entries, Path path) throws IOException {
+        FSTCompiler<CharsRef> compiler = new FSTCompiler<>(FST.INPUT_TYPE.BYTE2,
+            CharSequenceOutputs.getSingleton());
+        IntsRefBuilder scratchInts = new IntsRefBuilder();
+        StringBuilder roots = new StringBuilder();
+        long size = 0;
+        for (Map.Entry<String, Set<String>> entry : entries.entrySet()) {
+            if (entry.getKey().isEmpty()) {
+                continue;
+            }
+            roots.setLength(0);
+            for (String root : entry.getValue()) {
+                if (roots.length() > 0) {
+                    roots.append(ROOT_SEPARATOR);
+                }
+                roots.append(root);
+            }
+            compiler.add(Util.toUTF16(entry.getKey(), scratchInts), new CharsRef(roots.toString()));
+            size++;
+        }
+        FST<CharsRef> fst = compiler.compile();
+        if (fst == null) {
+            throw new IllegalArgumentException("Cannot write an empty dictionary");
+        }
+
+        Path absolute = path.toAbsolutePath();
+        Files.deleteIfExists(absolute);
+        try (Directory directory = FSDirectory.open(absolute.getParent());
+            IndexOutput output = directory.createOutput(absolute.getFileName().toString(),
+                IOContext.DEFAULT)) {
+            CodecUtil.writeHeader(output, CODEC_NAME, VERSION_CURRENT);
+            output.writeVLong(size);
+            fst.save(output, output);
+            CodecUtil.writeFooter(output);
+        }
+    }
+
+    /**
+     * Looks up the roots of a word.
+     *
+     * @param token the word, normalized the same way as the words the dictionary was built from
+     * @return the roots of the word, an empty set if the word is known to have no root, or {@code
+     * null} if the word is not in the dictionary
+     * @throws IOException if the dictionary file cannot be read
+     */
+    public Set<String> lookup(String token) throws IOException {
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        char[] buffer = token.toCharArray();
+        if (!newLookup().lookup(buffer, 0, buffer.length, roots)) {
+            return null;
+        }
+        return roots.toSet();
+    }
+
+    /**
+     * Creates the per-thread state needed to look words up without allocating.
+     *
+     * @return a new lookup, to be used by a single thread
+     */
+    public Lookup newLookup() {
+        return new Lookup();
+    }
+
+    /**
+     * Visits every word of this dictionary, in order, with its roots.
+     *
+     * @param consumer receives each word and its roots, an empty set for words without root
+     * @throws IOException if the dictionary file cannot be read
+     */
+    public void forEach(BiConsumer<String, Set<String>> consumer) throws IOException {
+        IntsRefFSTEnum<CharsRef> fstEnum = new IntsRefFSTEnum<>(fst);
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        char[] word = new char[16];
+        for (IntsRefFSTEnum.InputOutput<CharsRef> entry = fstEnum.next(); entry != null;
+            entry = fstEnum.next()) {
+            word = ArrayUtil.grow(word, entry.input.length);
+            for (int i = 0; i < entry.input.length; i++) {
+                word[i] = (char) entry.input.ints[entry.input.offset + i];
+            }
+            roots.clear();
+            CharsRef output = entry.output;
+            for (int i = output.offset, start = i, end = output.offset + output.length;
+                i <= end && output.length > 0; i++) {
+                if (i == end || output.chars[i] == ROOT_SEPARATOR) {
+                    roots.add(output.chars, start, i - start);
+                    start = i + 1;
+                }
+            }
+            consumer.accept(new String(word, 0, entry.input.length), roots.toSet());
+        }
+    }
+
+    /**
+     * @return the number of words in this dictionary
+     */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(input, directory);
+    }
+
+    /**
+     * Reusable, single-threaded lookup state over an {@link ArabicRootDictionary}.
+     */
+    public final class Lookup {
+
+        private final FST.BytesReader reader = fst.getBytesReader();
+        private final FST.Arc<CharsRef> arc = new FST.Arc<>();
+        private final CharsRefBuilder output = new CharsRefBuilder();
+
+        private Lookup() {
+        }
+
+        /**
+         * Looks up the roots of a word.
+         *
+         * @param buffer word chars, normalized the same way as the words the dictionary was built
+         *               from
+         * @param offset offset of the word in {@code buffer}
+         * @param length length of the word
+         * @param roots  receives the roots of the word
+         * @return {@code true} if the word is in the dictionary, even if it has no root
+         * @throws IOException if the dictionary file cannot be read
+         */
+        public boolean lookup(char[] buffer, int offset, int length, ArabicRootBuffer roots)
+            throws IOException {
+            if (length == 0) {
+                return false;
+            }
+
+            fst.getFirstArc(arc);
+            output.clear();
+            for (int i = offset; i < offset + length; i++) {
+                if (fst.findTargetArc(buffer[i], arc, arc, reader) == null) {
+                    return false;
+                }
+                append(arc.output());
+            }
+            if (!arc.isFinal()) {
+                return false;
+            }
+            append(arc.nextFinalOutput());
+
+            char[] chars = output.chars();
+            int start = 0;
+            int end = output.length();
+            for (int i = 0; i <= end && end > 0; i++) {
+                if (i == end || chars[i] == ROOT_SEPARATOR) {
+                    roots.add(chars, start, i - start);
+                    start = i + 1;
+                }
+            }
+            return true;
+        }
+
+        private void append(CharsRef chars) {
+            if (chars.length > 0) {
+                output.append(chars.chars, chars.offset, chars.length);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Builds an {@link ArabicRootDictionary} by running {@link ArabicRootExtractorStemmer} over a
+ * vocabulary. <p> Words are normalized with {@link ArabicNormalizer}, the same way {@link
+ * ArabicRootExtractorAnalyzer} normalizes them before stemming, so the dictionary answers for the
+ * tokens that reach {@link ArabicRootExtractorStemFilter}. </p> <p> Usage: </p>
+ * <pre>
+ * java -cp lucene-arabic-analyzer.jar com.github.msarhan.lucene.ArabicRootDictionaryBuilder \
+ *     vocabulary.txt roots.fst
+ * </pre>
+ * The vocabulary holds one word per line; anything after a tab, such as a frequency count, is
+ * ignored.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicRootDictionaryBuilder {
+
+    private final ArabicNormalizer normalizer = new ArabicNormalizer();
+    private final ArabicRootExtractorStemmer stemmer;
+    private final SortedMap<String, Set<String>> entries = new TreeMap<>();
+
+    public ArabicRootDictionaryBuilder() {
+        this(new ArabicRootExtractorStemmer());
+    }
+
+    /**
+     * @param stemmer the stemmer whose output is recorded in the dictionary
+     */
+    public ArabicRootDictionaryBuilder(ArabicRootExtractorStemmer stemmer) {
+        this.stemmer = stemmer;
+    }
+
+    /**
+     * Analyzes a word and adds it to the dictionary.
+     *
+     * @param word a word, possibly vowelled
+     */
+    public void add(String word) {
+        char[] buffer = word.trim().toCharArray();
+        int len = normalizer.normalize(buffer, buffer.length);
+        if (len == 0) {
+            return;
+        }
+        String token = new String(buffer, 0, len);
+        if (!entries.containsKey(token)) {
+            entries.put(token, stemmer.stem(token));
+        }
+    }
+
+    /**
+     * Adds every word of a vocabulary file.
+     *
+     * @param vocabulary a UTF-8 file holding one word per line
+     * @throws IOException if the file cannot be read
+     */
+    public void addAll(Path vocabulary) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(vocabulary, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                add(tab >= 0 ? line.substring(0, tab) : line);
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct words added so far
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the dictionary.
+     *
+     * @param output the dictionary file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path output) throws IOException {
+        ArabicRootDictionary.write(entries, output);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ArabicRootDictionaryBuilder <vocabulary> <output>");
+            System.exit(1);
+        }
+
+        ArabicRootDictionaryBuilder builder = new ArabicRootDictionaryBuilder();
+        long start = System.nanoTime();
+        builder.addAll(Paths.get(args[0]));
+        builder.write(Paths.get(args[1]));
+        System.out.printf("Wrote %d words to %s in %d ms%n", builder.size(), args[1],
+            (System.nanoTime() - start) / 1_000_000);
+    }
+}
\ No newline at end of file
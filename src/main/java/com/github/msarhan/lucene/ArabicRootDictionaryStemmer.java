@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * An {@link ArabicRootExtractorStemmer} that answers from a precompiled {@link
+ * ArabicRootDictionary} and falls through to AlKhalil morphological analysis only for words that
+ * are not in the dictionary. The cache, if any, only holds the words analyzed by AlKhalil.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootDictionaryStemmer extends ArabicRootExtractorStemmer {
+
+    private final ArabicRootDictionary.Lookup lookup;
+
+    public ArabicRootDictionaryStemmer(ArabicRootDictionary dictionary) {
+        this(dictionary, null);
+    }
+
+    /**
+     * @param dictionary the precompiled dictionary, shared by every stemmer using it
+     * @param cache      a cache for the words analyzed by AlKhalil, or {@code null}
+     */
+    public ArabicRootDictionaryStemmer(ArabicRootDictionary dictionary, ArabicRootCache cache) {
+        this(dictionary, cache, null);
+    }
+
+    /**
+     * @param dictionary the precompiled dictionary, shared by every stemmer using it
+     * @param cache      a cache for the words analyzed by AlKhalil, or {@code null}
+     * @param engine     the engine analyzing the words missing from the dictionary, or {@code null}
+     *                   for the default engine
+     */
+    public ArabicRootDictionaryStemmer(ArabicRootDictionary dictionary, ArabicRootCache cache,
+        ArabicMorphologyEngine engine) {
+        super(cache, engine);
+        this.lookup = dictionary.newLookup();
+    }
+
+    /**
+     * Looks the token up in the dictionary, then in the cache and AlKhalil if it is not there.
+     * Dictionary hits are not cached, so they do not evict the words analyzed by AlKhalil.
+     */
+    @Override
+    public void stem(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+        ArabicRootExtractorListener listener = getListener();
+        long start = listener != null ? System.nanoTime() : 0;
+        roots.clear();
+        boolean found;
+        try {
+            found = lookup.lookup(buffer, offset, length, roots);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!found) {
+            super.stem(buffer, offset, length, roots);
+        } else if (listener != null) {
+            listener.tokenStemmed(buffer, offset, length, roots.size(), System.nanoTime() - start);
+        }
+    }
+}
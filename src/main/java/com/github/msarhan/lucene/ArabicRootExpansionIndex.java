@@ -0,0 +1,332 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.CharArrayMap;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.CharsRefBuilder;
+import org.apache.lucene.util.CloseableThreadLocal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A reverse root to surface forms index, used to expand query terms over a field indexed with
+ * {@link ArabicSurfaceAnalyzer}. <p> The surface forms of a root are read from the terms dictionary
+ * of the field: the terms of each segment are stemmed once, the first time an {@link IndexReader}
+ * containing the segment is seen, and the result is kept until the segment is closed. Refreshing a
+ * reader after new segments were written thus only stems the terms of the new segments. Surface
+ * forms from a precomputed lexicon, such as an {@link ArabicRootDictionary}, can be added too, so
+ * that queries also match forms the index does not contain yet. </p> <p> The expansions of the
+ * most recently used query terms are cached per top-level reader, up to a fixed number of terms
+ * per reader. Instances are thread-safe. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootExpansionQueryParser
+ */
+public final class ArabicRootExpansionIndex implements Closeable {
+
+    /**
+     * The default number of query terms whose expansions are cached per reader.
+     */
+    public static final int DEFAULT_MAX_EXPANSIONS = 10_000;
+
+    private static final BytesRef[] NO_TERMS = new BytesRef[0];
+
+    private final String field;
+    private final Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory;
+    private final CloseableThreadLocal<Scratch> scratch = new CloseableThreadLocal<>();
+    private final CharArrayMap<BytesRef[]> lexicon;
+    private final int maxExpansions;
+    private final Map<IndexReader.CacheKey, CharArrayMap<BytesRef[]>> segments =
+        new ConcurrentHashMap<>();
+    private final Map<IndexReader.CacheKey, Map<String, BytesRef[]>> expansions =
+        new ConcurrentHashMap<>();
+
+    /**
+     * @param field          the field whose terms are expanded
+     * @param stemmerFactory creates the stemmers extracting the roots of terms, one per thread
+     */
+    public ArabicRootExpansionIndex(String field,
+        Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory) {
+        this(field, stemmerFactory, new Builder().build(), DEFAULT_MAX_EXPANSIONS);
+    }
+
+    /**
+     * @param field          the field whose terms are expanded
+     * @param stemmerFactory creates the stemmers extracting the roots of terms, one per thread
+     * @param lexicon        a precomputed lexicon whose words are added to the surface forms of
+     *                       their roots, or {@code null}
+     * @throws IOException if the lexicon cannot be read
+     */
+    public ArabicRootExpansionIndex(String field,
+        Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory,
+        ArabicRootDictionary lexicon) throws IOException {
+        this(field, stemmerFactory, lexicon, DEFAULT_MAX_EXPANSIONS);
+    }
+
+    /**
+     * @param field          the field whose terms are expanded
+     * @param stemmerFactory creates the stemmers extracting the roots of terms, one per thread
+     * @param lexicon        a precomputed lexicon whose words are added to the surface forms of
+     *                       their roots, or {@code null}
+     * @param maxExpansions  the number of query terms whose expansions are cached per reader; the
+     *                       least recently used ones are evicted first
+     * @throws IOException if the lexicon cannot be read
+     */
+    public ArabicRootExpansionIndex(String field,
+        Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory,
+        ArabicRootDictionary lexicon, int maxExpansions) throws IOException {
+        this(field, stemmerFactory, readLexicon(lexicon), maxExpansions);
+    }
+
+    private ArabicRootExpansionIndex(String field,
+        Supplier<? extends ArabicRootExtractorStemmer> stemmerFactory,
+        CharArrayMap<BytesRef[]> lexicon, int maxExpansions) {
+        if (maxExpansions <= 0) {
+            throw new IllegalArgumentException("maxExpansions must be > 0, got: " + maxExpansions);
+        }
+        this.field = Objects.requireNonNull(field);
+        this.stemmerFactory = Objects.requireNonNull(stemmerFactory);
+        this.lexicon = lexicon;
+        this.maxExpansions = maxExpansions;
+    }
+
+    private static CharArrayMap<BytesRef[]> readLexicon(ArabicRootDictionary lexicon)
+        throws IOException {
+        Builder builder = new Builder();
+        if (lexicon != null) {
+            lexicon.forEach((word, roots) -> {
+                BytesRef term = new BytesRef(word);
+                for (String root : roots) {
+                    builder.add(root, term);
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the field whose terms are expanded
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Stems the terms of the segments of {@code reader} that were not seen yet. Calling this method
+     * after opening a new reader is optional, {@link #expand} does it on demand, but it moves the
+     * cost out of the first query.
+     *
+     * @param reader a reader over an index whose field was analyzed with {@link
+     *               ArabicSurfaceAnalyzer}
+     * @throws IOException if the terms dictionary cannot be read
+     */
+    public void refresh(IndexReader reader) throws IOException {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            segment(leaf.reader());
+        }
+    }
+
+    /**
+     * Expands a query term to the surface forms sharing one of its roots.
+     *
+     * @param reader the reader the query runs against
+     * @param term   the query term, normalized with {@link ArabicSurfaceAnalyzer}
+     * @return the term and the surface forms of its roots, sorted and without duplicates
+     * @throws IOException if the terms dictionary cannot be read
+     */
+    public BytesRef[] expand(IndexReader reader, String term) throws IOException {
+        IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            return computeExpansion(reader, term);
+        }
+
+        Map<String, BytesRef[]> cache = expansions.get(cacheHelper.getKey());
+        if (cache == null) {
+            cache = newExpansionCache();
+            Map<String, BytesRef[]> existing = expansions.putIfAbsent(cacheHelper.getKey(), cache);
+            if (existing != null) {
+                cache = existing;
+            } else {
+                cacheHelper.addClosedListener(expansions::remove);
+            }
+        }
+        BytesRef[] expansion = cache.get(term);
+        if (expansion == null) {
+            expansion = computeExpansion(reader, term);
+            cache.put(term, expansion);
+        }
+        return expansion;
+    }
+
+    private Map<String, BytesRef[]> newExpansionCache() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, BytesRef[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BytesRef[]> eldest) {
+                return size() > maxExpansions;
+            }
+        });
+    }
+
+    private BytesRef[] computeExpansion(IndexReader reader, String term) throws IOException {
+        Scratch scratch = scratch();
+        char[] chars = term.toCharArray();
+        scratch.stemmer.stem(chars, 0, chars.length, scratch.roots);
+
+        SortedSet<BytesRef> terms = new TreeSet<>();
+        terms.add(new BytesRef(term));
+        List<CharArrayMap<BytesRef[]>> sources = new ArrayList<>();
+        sources.add(lexicon);
+        for (LeafReaderContext leaf : reader.leaves()) {
+            sources.add(segment(leaf.reader()));
+        }
+        ArabicRootBuffer roots = scratch.roots;
+        for (int i = 0; i < roots.size(); i++) {
+            for (CharArrayMap<BytesRef[]> source : sources) {
+                BytesRef[] forms = source.get(roots.chars(), roots.offset(i), roots.length(i));
+                if (forms != null) {
+                    Collections.addAll(terms, forms);
+                }
+            }
+        }
+        return terms.toArray(NO_TERMS);
+    }
+
+    private CharArrayMap<BytesRef[]> segment(LeafReader reader) throws IOException {
+        IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+        if (cacheHelper == null) {
+            return buildSegment(reader);
+        }
+
+        CharArrayMap<BytesRef[]> segment = segments.get(cacheHelper.getKey());
+        if (segment == null) {
+            segment = buildSegment(reader);
+            if (segments.putIfAbsent(cacheHelper.getKey(), segment) == null) {
+                cacheHelper.addClosedListener(segments::remove);
+            }
+        }
+        return segment;
+    }
+
+    private CharArrayMap<BytesRef[]> buildSegment(LeafReader reader) throws IOException {
+        Builder builder = new Builder();
+        Terms terms = reader.terms(field);
+        if (terms == null) {
+            return builder.build();
+        }
+
+        Scratch scratch = scratch();
+        ArabicRootBuffer roots = scratch.roots;
+        CharsRefBuilder chars = scratch.chars;
+        TermsEnum termsEnum = terms.iterator();
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            chars.copyUTF8Bytes(term);
+            scratch.stemmer.stem(chars.chars(), 0, chars.length(), roots);
+            if (roots.isEmpty()) {
+                continue;
+            }
+            BytesRef copy = BytesRef.deepCopyOf(term);
+            for (int i = 0; i < roots.size(); i++) {
+                builder.add(roots.chars(), roots.offset(i), roots.length(i), copy);
+            }
+        }
+        return builder.build();
+    }
+
+    private Scratch scratch() {
+        Scratch s = scratch.get();
+        if (s == null) {
+            s = new Scratch(stemmerFactory.get());
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    /**
+     * Releases the per-thread stemmers and the cached expansions.
+     */
+    @Override
+    public void close() {
+        scratch.close();
+        segments.clear();
+        expansions.clear();
+    }
+
+    private static final class Scratch {
+
+        final ArabicRootExtractorStemmer stemmer;
+        final ArabicRootBuffer roots = new ArabicRootBuffer();
+        final CharsRefBuilder chars = new CharsRefBuilder();
+
+        Scratch(ArabicRootExtractorStemmer stemmer) {
+            this.stemmer = stemmer;
+        }
+    }
+
+    /**
+     * Accumulates root to surface forms entries.
+     */
+    private static final class Builder {
+
+        private final CharArrayMap<List<BytesRef>> forms = new CharArrayMap<>(1024, false);
+
+        void add(char[] root, int offset, int length, BytesRef term) {
+            List<BytesRef> terms = forms.get(root, offset, length);
+            if (terms == null) {
+                terms = new ArrayList<>(2);
+                forms.put(new String(root, offset, length), terms);
+            }
+            terms.add(term);
+        }
+
+        void add(String root, BytesRef term) {
+            add(root.toCharArray(), 0, root.length(), term);
+        }
+
+        CharArrayMap<BytesRef[]> build() {
+            CharArrayMap<BytesRef[]> result = new CharArrayMap<>(forms.size(), false);
+            for (Map.Entry<Object, List<BytesRef>> entry : forms.entrySet()) {
+                result.put((char[]) entry.getKey(), entry.getValue().toArray(NO_TERMS));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SynonymQuery;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * A {@link QueryParser} expanding every term of the expanded field to the surface forms sharing
+ * one of its roots, for fields indexed with {@link ArabicSurfaceAnalyzer}. <p> Root extraction is
+ * paid per query term instead of per indexed token: a term with few expansions becomes a {@link
+ * SynonymQuery}, which scores all forms as one term; a term with more than {@link
+ * #getMaxSynonyms()} expansions becomes a constant score {@link TermInSetQuery}. Phrase queries are
+ * not expanded. </p> <p> Like any {@link QueryParser}, instances are not thread-safe; they are
+ * cheap to create for every query. </p>
+ * <pre>
+ * ArabicRootExpansionIndex expansions = new ArabicRootExpansionIndex("title", ArabicRootExtractorStemmer::new);
+ * // for each query
+ * Query query = new ArabicRootExpansionQueryParser(new ArabicSurfaceAnalyzer(), expansions, reader)
+ *     .parse("راحم");
+ * </pre>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootExpansionQueryParser extends QueryParser {
+
+    /**
+     * The default maximum number of expansions of a term scored as synonyms.
+     */
+    public static final int DEFAULT_MAX_SYNONYMS = 64;
+
+    private final ArabicRootExpansionIndex expansionIndex;
+    private final IndexReader reader;
+    private int maxSynonyms = DEFAULT_MAX_SYNONYMS;
+
+    /**
+     * @param analyzer       analyzes the query text, normally an {@link ArabicSurfaceAnalyzer}
+     * @param expansionIndex the reverse root index of the default field, which is expanded
+     * @param reader         the reader the query will run against
+     */
+    public ArabicRootExpansionQueryParser(Analyzer analyzer,
+        ArabicRootExpansionIndex expansionIndex, IndexReader reader) {
+        super(expansionIndex.getField(), analyzer);
+        this.expansionIndex = expansionIndex;
+        this.reader = reader;
+    }
+
+    /**
+     * @return the maximum number of expansions of a term scored as synonyms
+     */
+    public int getMaxSynonyms() {
+        return maxSynonyms;
+    }
+
+    /**
+     * Sets the maximum number of expansions of a term scored as synonyms; terms with more
+     * expansions match them with a constant score.
+     */
+    public void setMaxSynonyms(int maxSynonyms) {
+        if (maxSynonyms < 1) {
+            throw new IllegalArgumentException("maxSynonyms must be at least 1, got " + maxSynonyms);
+        }
+        this.maxSynonyms = maxSynonyms;
+    }
+
+    @Override
+    protected Query newTermQuery(Term term, float boost) {
+        if (!term.field().equals(expansionIndex.getField())) {
+            return super.newTermQuery(term, boost);
+        }
+
+        BytesRef[] forms;
+        try {
+            forms = expansionIndex.expand(reader, term.text());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (forms.length <= 1) {
+            return super.newTermQuery(term, boost);
+        }
+
+        Query query;
+        if (forms.length <= maxSynonyms) {
+            SynonymQuery.Builder builder = new SynonymQuery.Builder(term.field());
+            for (BytesRef form : forms) {
+                builder.addTerm(new Term(term.field(), form));
+            }
+            query = builder.build();
+        } else {
+            query = new TermInSetQuery(term.field(), Arrays.asList(forms));
+        }
+        return boost == 1f ? query : new BoostQuery(query, boost);
+    }
+}
@@ -52,6 +52,16 @@ public final class ArabicRootExtractorAnalyzer extends StopwordAnalyzerBase {
     public final static String DEFAULT_STOPWORD_FILE = "stopwords.txt";
 
     private final CharArraySet stemExclusionSet;
+    private final ArabicRootCache rootCache;
+    private final ArabicRootDictionary rootDictionary;
+    private final ArabicMorphologyEngine engine;
+    private final int maxRoots;
+    private final ArabicRootFrequencies rootFrequencies;
+    private final ArabicRootExtractorBudget budget;
+    private final boolean tokenRouting;
+    private final ArabicRootVocabulary rootVocabulary;
+    private final boolean folding;
+    private final ArabicAnalysisDepth depth;
 
     /**
      * Builds an analyzer with the default stop words: {@link #DEFAULT_STOPWORD_FILE}.
@@ -78,8 +88,83 @@ public final class ArabicRootExtractorAnalyzer extends StopwordAnalyzerBase {
      * @param stemExclusionSet a set of terms not to be stemmed
      */
     public ArabicRootExtractorAnalyzer(CharArraySet stopwords, CharArraySet stemExclusionSet) {
+        this(stopwords, stemExclusionSet, null);
+    }
+
+    /**
+     * Builds an analyzer with the given stop words, stem exclusion set and root cache. The cache is
+     * shared by the {@link ArabicRootExtractorStemFilter}s of every thread using this analyzer, so
+     * each distinct word is analyzed once for as long as it stays in the cache.
+     *
+     * @param stopwords        a stopword set
+     * @param stemExclusionSet a set of terms not to be stemmed
+     * @param rootCache        a cache of extracted roots, or {@code null} to disable caching
+     */
+    public ArabicRootExtractorAnalyzer(CharArraySet stopwords, CharArraySet stemExclusionSet,
+        ArabicRootCache rootCache) {
+        this(stopwords, stemExclusionSet, rootCache, null);
+    }
+
+    /**
+     * Builds an analyzer that looks words up in a precompiled {@link ArabicRootDictionary} and
+     * runs the morphological analysis only for words missing from it.
+     *
+     * @param stopwords        a stopword set
+     * @param stemExclusionSet a set of terms not to be stemmed
+     * @param rootCache        a cache of extracted roots, or {@code null} to disable caching
+     * @param rootDictionary   a precompiled root dictionary, or {@code null}; it is not closed by
+     *                         this analyzer
+     */
+    public ArabicRootExtractorAnalyzer(CharArraySet stopwords, CharArraySet stemExclusionSet,
+        ArabicRootCache rootCache, ArabicRootDictionary rootDictionary) {
+        this(stopwords, stemExclusionSet, rootCache, rootDictionary, null);
+    }
+
+    /**
+     * Builds an analyzer whose stemmers run against the given {@link ArabicMorphologyEngine}, which
+     * may be shared with other analyzers.
+     *
+     * @param stopwords        a stopword set
+     * @param stemExclusionSet a set of terms not to be stemmed
+     * @param rootCache        a cache of extracted roots, or {@code null} to disable caching
+     * @param rootDictionary   a precompiled root dictionary, or {@code null}; it is not closed by
+     *                         this analyzer
+     * @param engine           the morphology engine, or {@code null} for the default engine; it is
+     *                         not closed by this analyzer
+     */
+    public ArabicRootExtractorAnalyzer(CharArraySet stopwords, CharArraySet stemExclusionSet,
+        ArabicRootCache rootCache, ArabicRootDictionary rootDictionary,
+        ArabicMorphologyEngine engine) {
+        this(stopwords, stemExclusionSet, rootCache, rootDictionary, engine, Integer.MAX_VALUE, null,
+            ArabicRootExtractorBudget.UNLIMITED, false, null, false, ArabicAnalysisDepth.ROOT);
+    }
+
+    private ArabicRootExtractorAnalyzer(CharArraySet stopwords, CharArraySet stemExclusionSet,
+        ArabicRootCache rootCache, ArabicRootDictionary rootDictionary,
+        ArabicMorphologyEngine engine, int maxRoots, ArabicRootFrequencies rootFrequencies,
+        ArabicRootExtractorBudget budget, boolean tokenRouting,
+        ArabicRootVocabulary rootVocabulary, boolean folding, ArabicAnalysisDepth depth) {
         super(stopwords);
         this.stemExclusionSet = CharArraySet.unmodifiableSet(CharArraySet.copy(stemExclusionSet));
+        this.rootCache = rootCache;
+        this.rootDictionary = rootDictionary;
+        this.engine = engine;
+        this.maxRoots = maxRoots;
+        this.rootFrequencies = rootFrequencies;
+        this.budget = budget;
+        this.tokenRouting = tokenRouting;
+        this.rootVocabulary = rootVocabulary;
+        this.folding = folding;
+        this.depth = depth;
+    }
+
+    /**
+     * Returns a builder for analyzers using options that have no dedicated constructor.
+     *
+     * @return a new builder, initialized with the defaults of {@link #ArabicRootExtractorAnalyzer()}
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
@@ -91,28 +176,218 @@ public final class ArabicRootExtractorAnalyzer extends StopwordAnalyzerBase {
         return DefaultSetHolder.DEFAULT_STOP_SET;
     }
 
+    /**
+     * Returns the root cache shared by this analyzer's stem filters.
+     *
+     * @return the root cache, or {@code null} if caching is disabled
+     */
+    public ArabicRootCache getRootCache() {
+        return rootCache;
+    }
+
+    /**
+     * Strips tatweel and harakat with an {@link ArabicNormalizationCharFilter} before the text
+     * reaches the tokenizer, unless an {@link ArabicFoldingFilter} strips them from the tokens.
+     */
+    @Override
+    protected Reader initReader(String fieldName, Reader reader) {
+        return folding ? reader : new ArabicNormalizationCharFilter(reader);
+    }
+
     /**
      * Creates {@link org.apache.lucene.analysis.Analyzer.TokenStreamComponents} used to tokenize
      * all the text in the provided {@link Reader}.
      *
      * @return {@link org.apache.lucene.analysis.Analyzer.TokenStreamComponents} built from an
      * {@link StandardTokenizer} filtered with {@link LowerCaseFilter}, {@link DecimalDigitFilter},
-     * {@link StopFilter}, {@link ArabicRootExtractorStemFilter}, {@link SetKeywordMarkerFilter}
+     * {@link StopFilter}, {@link ArabicRootExtractorStemFilter}, {@link SetKeywordMarkerFilter};
+     * the lowercasing, digit and stop filters are replaced by an {@link ArabicFoldingFilter} if
+     * enabled
      */
     @Override
     protected TokenStreamComponents createComponents(String fieldName) {
-        final Tokenizer source = new StandardTokenizer();
-        TokenStream result = new LowerCaseFilter(source);
-        result = new DecimalDigitFilter(result);
-        result = new ArabicNormalizationFilter(result);
-        result = new StopFilter(result, stopwords);
+        final Tokenizer source = rootVocabulary != null
+            ? new StandardTokenizer(ArabicRootTermAttributeImpl.FACTORY) : new StandardTokenizer();
+        TokenStream result;
+        if (folding) {
+            result = new ArabicFoldingFilter(source, stopwords);
+        } else {
+            result = new LowerCaseFilter(source);
+            result = new DecimalDigitFilter(result);
+            result = new StopFilter(result, stopwords);
+        }
         if (!stemExclusionSet.isEmpty()) {
             result = new SetKeywordMarkerFilter(result, stemExclusionSet);
         }
-        result = new ArabicRootExtractorStemFilter(result);
+        ArabicStemmingBackend backend = createStemmer();
+        if (tokenRouting) {
+            backend = new ArabicTokenRouter(backend);
+        }
+        result = new ArabicRootExtractorStemFilter(result, backend, maxRoots, rootFrequencies,
+            budget, rootVocabulary);
         return new TokenStreamComponents(source, result);
     }
 
+    private ArabicRootExtractorStemmer createStemmer() {
+        if (rootDictionary != null && depth == ArabicAnalysisDepth.ROOT) {
+            return new ArabicRootDictionaryStemmer(rootDictionary, rootCache, engine);
+        }
+        return new ArabicRootExtractorStemmer(rootCache, engine, depth);
+    }
+
+    /**
+     * Builds {@link ArabicRootExtractorAnalyzer}s.
+     */
+    public static final class Builder {
+
+        private CharArraySet stopwords = DefaultSetHolder.DEFAULT_STOP_SET;
+        private CharArraySet stemExclusionSet = CharArraySet.EMPTY_SET;
+        private ArabicRootCache rootCache;
+        private ArabicRootDictionary rootDictionary;
+        private ArabicMorphologyEngine engine;
+        private int maxRoots = Integer.MAX_VALUE;
+        private ArabicRootFrequencies rootFrequencies;
+        private ArabicRootExtractorBudget budget = ArabicRootExtractorBudget.UNLIMITED;
+        private boolean tokenRouting;
+        private ArabicRootVocabulary rootVocabulary;
+        private boolean folding;
+        private ArabicAnalysisDepth depth = ArabicAnalysisDepth.ROOT;
+
+        private Builder() {
+        }
+
+        /**
+         * @param stopwords a stopword set
+         */
+        public Builder stopwords(CharArraySet stopwords) {
+            this.stopwords = stopwords;
+            return this;
+        }
+
+        /**
+         * @param stemExclusionSet a set of terms not to be stemmed
+         */
+        public Builder stemExclusionSet(CharArraySet stemExclusionSet) {
+            this.stemExclusionSet = stemExclusionSet;
+            return this;
+        }
+
+        /**
+         * @param rootCache a cache of extracted roots, or {@code null} to disable caching
+         */
+        public Builder rootCache(ArabicRootCache rootCache) {
+            this.rootCache = rootCache;
+            return this;
+        }
+
+        /**
+         * @param rootDictionary a precompiled root dictionary, or {@code null}; it is not closed by
+         *                       the analyzer
+         */
+        public Builder rootDictionary(ArabicRootDictionary rootDictionary) {
+            this.rootDictionary = rootDictionary;
+            return this;
+        }
+
+        /**
+         * @param engine the morphology engine, or {@code null} for the default engine; it is not
+         *               closed by the analyzer
+         */
+        public Builder engine(ArabicMorphologyEngine engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        /**
+         * Keeps at most {@code maxRoots} roots per token, the most frequent ones according to the
+         * {@linkplain #rootFrequencies(ArabicRootFrequencies) root frequencies}.
+         *
+         * @param maxRoots the maximum number of roots per token, {@link Integer#MAX_VALUE} for no
+         *                 limit
+         */
+        public Builder maxRoots(int maxRoots) {
+            if (maxRoots < 1) {
+                throw new IllegalArgumentException("maxRoots must be at least 1, got " + maxRoots);
+            }
+            this.maxRoots = maxRoots;
+            return this;
+        }
+
+        /**
+         * @param rootFrequencies ranks roots when pruning, or {@code null} to keep the first roots,
+         *                        in the order of the analysis
+         */
+        public Builder rootFrequencies(ArabicRootFrequencies rootFrequencies) {
+            this.rootFrequencies = rootFrequencies;
+            return this;
+        }
+
+        /**
+         * @param budget bounds the morphological analysis of long tokens and slow field values
+         */
+        public Builder budget(ArabicRootExtractorBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Routes tokens through an {@link ArabicTokenRouter} with its default backends, so that
+         * only purely Arabic tokens are analyzed.
+         *
+         * @param tokenRouting whether to route tokens by script, {@code false} by default
+         */
+        public Builder tokenRouting(boolean tokenRouting) {
+            this.tokenRouting = tokenRouting;
+            return this;
+        }
+
+        /**
+         * Emits the roots of a vocabulary as compact binary terms. Queries parsed with the same
+         * analyzer are translated alike; {@link ArabicRootVocabulary#toTerm(String, String)}
+         * translates roots of queries built by hand.
+         *
+         * @param rootVocabulary the root vocabulary, or {@code null} to emit text terms
+         */
+        public Builder rootVocabulary(ArabicRootVocabulary rootVocabulary) {
+            this.rootVocabulary = rootVocabulary;
+            return this;
+        }
+
+        /**
+         * Replaces the normalization char filter and the lowercasing, digit and stop filters with
+         * a single {@link ArabicFoldingFilter}, which produces the same tokens in one pass.
+         *
+         * @param folding whether to fold tokens in one pass, {@code false} by default
+         */
+        public Builder folding(boolean folding) {
+            this.folding = folding;
+            return this;
+        }
+
+        /**
+         * Indexes clitic-stripped or morphological stems instead of roots. Clitic stripping skips
+         * the morphological analysis, and with it most of the cost of this analyzer. The root
+         * cache must not be shared with analyzers of another depth; the root dictionary is only
+         * used for roots, and binary root terms require them.
+         *
+         * @param depth what tokens are replaced by, {@link ArabicAnalysisDepth#ROOT} by default
+         */
+        public Builder depth(ArabicAnalysisDepth depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        public ArabicRootExtractorAnalyzer build() {
+            if (rootVocabulary != null && depth != ArabicAnalysisDepth.ROOT) {
+                throw new IllegalArgumentException(
+                    "Binary root terms require the root depth, got " + depth);
+            }
+            return new ArabicRootExtractorAnalyzer(stopwords, stemExclusionSet, rootCache,
+                rootDictionary, engine, maxRoots, rootFrequencies, budget, tokenRouting,
+                rootVocabulary, folding, depth);
+        }
+    }
+
     /**
      * Atomically loads the DEFAULT_STOP_SET in a lazy fashion once the outer class accesses the
      * static final set the first time.;
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.ar.ArabicStemmer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the morphological analysis done by an {@link ArabicRootExtractorStemFilter}. <p> AlKhalil
+ * explores every clitic and pattern combination of a token, which is slow for very long tokens such
+ * as concatenated words or OCR garbage. Tokens longer than {@link #getMaxTokenLength()} are not
+ * analyzed. A running analysis cannot be interrupted, so the time budget applies to a whole token
+ * stream: once the analysis of the tokens of a field value has taken {@link #getMaxAnalysisNanos()}
+ * nanoseconds, the remaining tokens are not analyzed either. Tokens that are not analyzed go to the
+ * {@linkplain #getFallback() fallback} and are reported to {@link
+ * ArabicRootExtractorListener#fallbackApplied()}. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicRootExtractorBudget {
+
+    /**
+     * What becomes of a token that is not analyzed.
+     */
+    public enum Fallback {
+        /**
+         * The token is stemmed by Lucene's light {@link ArabicStemmer}.
+         */
+        LIGHT_STEM,
+        /**
+         * The token is emitted unchanged.
+         */
+        KEEP
+    }
+
+    /**
+     * Analyzes every token, whatever its length and the time it takes.
+     */
+    public static final ArabicRootExtractorBudget UNLIMITED = new ArabicRootExtractorBudget(
+        Integer.MAX_VALUE, Long.MAX_VALUE, TimeUnit.NANOSECONDS, Fallback.KEEP);
+
+    private final int maxTokenLength;
+    private final long maxAnalysisNanos;
+    private final Fallback fallback;
+
+    /**
+     * @param maxTokenLength  the length above which tokens are not analyzed, {@link
+     *                        Integer#MAX_VALUE} for no limit
+     * @param maxAnalysisTime the time the analysis of a token stream may take, {@link
+     *                        Long#MAX_VALUE} for no limit
+     * @param unit            the unit of {@code maxAnalysisTime}
+     * @param fallback        what becomes of the tokens that are not analyzed
+     */
+    public ArabicRootExtractorBudget(int maxTokenLength, long maxAnalysisTime, TimeUnit unit,
+        Fallback fallback) {
+        if (maxTokenLength < 1) {
+            throw new IllegalArgumentException("maxTokenLength must be at least 1, got "
+                + maxTokenLength);
+        }
+        if (maxAnalysisTime < 0) {
+            throw new IllegalArgumentException("maxAnalysisTime must not be negative, got "
+                + maxAnalysisTime);
+        }
+        this.maxTokenLength = maxTokenLength;
+        this.maxAnalysisNanos = maxAnalysisTime == Long.MAX_VALUE ? Long.MAX_VALUE
+            : unit.toNanos(maxAnalysisTime);
+        this.fallback = fallback;
+    }
+
+    public int getMaxTokenLength() {
+        return maxTokenLength;
+    }
+
+    /**
+     * @return the time, in nanoseconds, the analysis of a token stream may take, {@link
+     * Long#MAX_VALUE} if unlimited
+     */
+    public long getMaxAnalysisNanos() {
+        return maxAnalysisNanos;
+    }
+
+    public Fallback getFallback() {
+        return fallback;
+    }
+
+    boolean isTimed() {
+        return maxAnalysisNanos != Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "ArabicRootExtractorBudget{maxTokenLength=" + maxTokenLength + ", maxAnalysisNanos="
+            + maxAnalysisNanos + ", fallback=" + fallback + "}";
+    }
+}
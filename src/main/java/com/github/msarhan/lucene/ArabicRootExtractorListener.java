@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+/**
+ * Receives an event for every token seen by the stemmers and stem filters of an {@link
+ * ArabicMorphologyEngine}. <p> Methods are called on the analyzing threads, on the hot path of
+ * the analysis, and must be thread-safe and cheap. The token chars are only valid during the call.
+ * </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootExtractorMetrics
+ */
+public interface ArabicRootExtractorListener {
+
+    /**
+     * Called after a token is stemmed.
+     *
+     * @param buffer token chars
+     * @param offset offset of the token in {@code buffer}
+     * @param length length of the token
+     * @param roots  the number of roots extracted, {@code 0} for an unknown word
+     * @param nanos  the time spent stemming the token, cache lookup included
+     */
+    default void tokenStemmed(char[] buffer, int offset, int length, int roots, long nanos) {
+    }
+
+    /**
+     * Called when a stem filter passes a token marked as keyword through without stemming it.
+     */
+    default void keywordSkipped() {
+    }
+
+    /**
+     * Called when a stem filter does not analyze a token because it exceeds the {@link
+     * ArabicRootExtractorBudget} of the filter, and hands it to the fallback instead.
+     */
+    default void fallbackApplied() {
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link ArabicRootExtractorListener} that aggregates counters and histograms, and exposes them
+ * through JMX. <p> Recording a token costs a few uncontended {@link LongAdder} increments; only
+ * tokens slower than the fastest of the current slowest tokens take a lock. </p>
+ * <pre>
+ * ArabicRootExtractorMetrics metrics = new ArabicRootExtractorMetrics();
+ * metrics.register("index");
+ * ArabicMorphologyEngine engine = new ArabicMorphologyEngine(null, metrics);
+ * </pre>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicRootExtractorMetrics implements ArabicRootExtractorListener,
+    ArabicRootExtractorMetricsMBean {
+
+    /**
+     * The JMX domain metrics are registered under.
+     */
+    public static final String DOMAIN = "com.github.msarhan.lucene";
+
+    /**
+     * The number of slowest tokens kept by default.
+     */
+    public static final int DEFAULT_SLOWEST_TOKENS = 20;
+
+    static final int MAX_ROOTS_BUCKET = 8;
+    // bucket i holds times below 2^i microseconds, the last one everything above
+    static final int TIME_BUCKETS = 24;
+
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder keywords = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder[] rootsHistogram = newAdders(MAX_ROOTS_BUCKET + 1);
+    private final LongAdder[] timeHistogram = newAdders(TIME_BUCKETS);
+
+    private final int maxSlowestTokens;
+    private final PriorityQueue<SlowToken> slowestTokens;
+    private volatile long slowThreshold;
+
+    private ObjectName objectName;
+
+    /**
+     * Builds metrics keeping the {@link #DEFAULT_SLOWEST_TOKENS} slowest tokens.
+     */
+    public ArabicRootExtractorMetrics() {
+        this(DEFAULT_SLOWEST_TOKENS);
+    }
+
+    /**
+     * @param maxSlowestTokens the number of slowest tokens to keep, {@code 0} to keep none
+     */
+    public ArabicRootExtractorMetrics(int maxSlowestTokens) {
+        if (maxSlowestTokens < 0) {
+            throw new IllegalArgumentException("maxSlowestTokens must not be negative, got "
+                + maxSlowestTokens);
+        }
+        this.maxSlowestTokens = maxSlowestTokens;
+        this.slowestTokens = new PriorityQueue<>(Math.max(1, maxSlowestTokens),
+            Comparator.comparingLong(t -> t.nanos));
+        this.slowThreshold = maxSlowestTokens == 0 ? Long.MAX_VALUE : 0;
+    }
+
+    @Override
+    public void tokenStemmed(char[] buffer, int offset, int length, int roots, long nanos) {
+        tokens.increment();
+        if (roots == 0) {
+            unknown.increment();
+        }
+        rootsHistogram[Math.min(roots, MAX_ROOTS_BUCKET)].increment();
+        timeHistogram[timeBucket(nanos)].increment();
+        if (nanos > slowThreshold) {
+            recordSlowToken(new String(buffer, offset, length), nanos);
+        }
+    }
+
+    @Override
+    public void keywordSkipped() {
+        keywords.increment();
+    }
+
+    @Override
+    public void fallbackApplied() {
+        fallbacks.increment();
+    }
+
+    static int timeBucket(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), TIME_BUCKETS - 1);
+    }
+
+    private synchronized void recordSlowToken(String token, long nanos) {
+        if (nanos <= slowThreshold) {
+            return;
+        }
+        slowestTokens.add(new SlowToken(token, nanos));
+        if (slowestTokens.size() > maxSlowestTokens) {
+            slowestTokens.poll();
+        }
+        if (slowestTokens.size() == maxSlowestTokens) {
+            slowThreshold = slowestTokens.peek().nanos;
+        }
+    }
+
+    @Override
+    public long getTokenCount() {
+        return tokens.sum();
+    }
+
+    @Override
+    public long getKeywordCount() {
+        return keywords.sum();
+    }
+
+    @Override
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public long getUnknownCount() {
+        return unknown.sum();
+    }
+
+    @Override
+    public long[] getRootsPerTokenHistogram() {
+        return sums(rootsHistogram);
+    }
+
+    @Override
+    public long[] getAnalysisTimeHistogram() {
+        return sums(timeHistogram);
+    }
+
+    @Override
+    public long[] getAnalysisTimeBuckets() {
+        long[] buckets = new long[TIME_BUCKETS];
+        for (int i = 0; i < TIME_BUCKETS - 1; i++) {
+            buckets[i] = 1L << i;
+        }
+        buckets[TIME_BUCKETS - 1] = Long.MAX_VALUE;
+        return buckets;
+    }
+
+    @Override
+    public synchronized String[] getSlowestTokens() {
+        SlowToken[] slowest = slowestTokens.toArray(new SlowToken[0]);
+        Arrays.sort(slowest, Comparator.comparingLong((SlowToken t) -> t.nanos).reversed());
+        String[] result = new String[slowest.length];
+        for (int i = 0; i < slowest.length; i++) {
+            result[i] = slowest[i].toString();
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        tokens.reset();
+        keywords.reset();
+        fallbacks.reset();
+        unknown.reset();
+        for (LongAdder adder : rootsHistogram) {
+            adder.reset();
+        }
+        for (LongAdder adder : timeHistogram) {
+            adder.reset();
+        }
+        synchronized (this) {
+            slowestTokens.clear();
+            slowThreshold = maxSlowestTokens == 0 ? Long.MAX_VALUE : 0;
+        }
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, under {@code
+     * com.github.msarhan.lucene:type=ArabicRootExtractor,name=<name>}.
+     *
+     * @param name distinguishes these metrics from others registered in the same JVM
+     * @throws JMException if the metrics cannot be registered, e.g. because the name is taken
+     */
+    public synchronized void register(String name) throws JMException {
+        if (objectName != null) {
+            throw new IllegalStateException("Already registered as " + objectName);
+        }
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=ArabicRootExtractor,name="
+            + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+    }
+
+    /**
+     * Unregisters these metrics from the platform MBean server, if registered.
+     *
+     * @throws JMException if the metrics cannot be unregistered
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ArabicRootExtractorMetrics{tokens=" + getTokenCount()
+            + ", keywords=" + getKeywordCount()
+            + ", fallbacks=" + getFallbackCount()
+            + ", unknown=" + getUnknownCount() + "}";
+    }
+
+    private static LongAdder[] newAdders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    private static final class SlowToken {
+
+        final String token;
+        final long nanos;
+
+        SlowToken(String token, long nanos) {
+            this.token = token;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            return token + ": " + String.format("%.3f ms", nanos / 1_000_000.0);
+        }
+    }
+}
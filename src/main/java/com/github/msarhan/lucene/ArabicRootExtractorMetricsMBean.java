@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+/**
+ * JMX view of {@link ArabicRootExtractorMetrics}.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public interface ArabicRootExtractorMetricsMBean {
+
+    /**
+     * @return the number of tokens stemmed
+     */
+    long getTokenCount();
+
+    /**
+     * @return the number of keyword tokens passed through without stemming
+     */
+    long getKeywordCount();
+
+    /**
+     * @return the number of tokens not analyzed because they exceeded the budget of a stem filter
+     */
+    long getFallbackCount();
+
+    /**
+     * @return the number of stemmed tokens without any root, returned unchanged by the filter
+     */
+    long getUnknownCount();
+
+    /**
+     * @return the number of tokens per number of roots: element {@code i} counts the tokens with
+     * {@code i} roots, the last element counts the tokens with at least that many roots
+     */
+    long[] getRootsPerTokenHistogram();
+
+    /**
+     * @return the number of tokens per stemming time bucket, see {@link
+     * #getAnalysisTimeBuckets()}
+     */
+    long[] getAnalysisTimeHistogram();
+
+    /**
+     * @return the upper bound, in microseconds, of each bucket of {@link
+     * #getAnalysisTimeHistogram()}; the last bucket is unbounded
+     */
+    long[] getAnalysisTimeBuckets();
+
+    /**
+     * @return the slowest tokens seen, slowest first, formatted as {@code token: time}
+     */
+    String[] getSlowestTokens();
+
+    /**
+     * Resets every counter.
+     */
+    void reset();
+}
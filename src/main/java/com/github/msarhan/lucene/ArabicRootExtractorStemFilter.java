@@ -26,21 +26,30 @@ package com.github.msarhan.lucene;
 
 import org.apache.lucene.analysis.TokenFilter;
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ar.ArabicStemmer;
 import org.apache.lucene.analysis.miscellaneous.SetKeywordMarkerFilter;
+import org.apache.lucene.analysis.tokenattributes.BytesTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.KeywordAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
-import org.apache.lucene.util.CharsRef;
-import org.apache.lucene.util.CharsRefBuilder;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.util.AttributeSource;
+import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * A {@link TokenFilter} that applies {@link ArabicRootExtractorStemmer}. <p> To prevent terms from
  * being stemmed use an instance of {@link SetKeywordMarkerFilter} or a custom {@link TokenFilter}
- * that sets the {@link KeywordAttribute} before this {@link TokenStream}. </p>
+ * that sets the {@link KeywordAttribute} before this {@link TokenStream}. </p> <p> Every root of a
+ * token is emitted at the same position. To limit the size of the index, the filter can keep only
+ * the most frequent roots of ambiguous tokens, ranked by {@link ArabicRootFrequencies}. </p> <p>
+ * An {@link ArabicRootExtractorBudget} bounds the time spent analyzing long or pathological
+ * tokens; tokens over budget are emitted unchanged or light-stemmed. </p> <p> Given an {@link
+ * ArabicRootVocabulary}, the filter emits the roots of the vocabulary as fixed-width binary terms
+ * rather than text; the tokenizer must then be created with {@link
+ * ArabicRootTermAttributeImpl#FACTORY}. </p> <p> Backed by a stemmer of another {@link
+ * ArabicAnalysisDepth}, the filter emits stems in place of roots. </p>
  *
  * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
  * @see SetKeywordMarkerFilter
@@ -50,21 +59,121 @@ public final class ArabicRootExtractorStemFilter extends TokenFilter {
     private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
     private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
     private final KeywordAttribute keywordAttr = addAttribute(KeywordAttribute.class);
-    private final ArabicRootExtractorStemmer stemmer = new ArabicRootExtractorStemmer();
-    private List<CharsRef> buffer;
-    private State savedState;
+    private final ArabicStemmingBackend backend;
+    private final ArabicRootExtractorListener listener;
+    private final ArabicRootPruner pruner;
+    private final ArabicRootExtractorBudget budget;
+    private final ArabicStemmer lightStemmer;
+    private final ArabicRootVocabulary vocabulary;
+    private final BytesTermAttribute bytesTermAtt;
+    private final BytesRef rootTerm = new BytesRef();
+    private final ArabicRootBuffer roots = new ArabicRootBuffer();
+    private int cursor;
+    private AttributeSource savedState;
+    private long analysisNanos;
 
     public ArabicRootExtractorStemFilter(TokenStream input) {
+        this(input, new ArabicRootExtractorStemmer());
+    }
+
+    /**
+     * @param input   the source {@link TokenStream}
+     * @param stemmer the stemmer used to extract roots, possibly backed by a shared {@link
+     *                ArabicRootCache}
+     */
+    public ArabicRootExtractorStemFilter(TokenStream input, ArabicRootExtractorStemmer stemmer) {
+        this(input, stemmer, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param input the source {@link TokenStream}
+     * @param depth whether tokens are replaced by their roots, their stems or their
+     *              clitic-stripped stems
+     */
+    public ArabicRootExtractorStemFilter(TokenStream input, ArabicAnalysisDepth depth) {
+        this(input, new ArabicRootExtractorStemmer(null, null, depth));
+    }
+
+    /**
+     * @param input       the source {@link TokenStream}
+     * @param stemmer     the stemmer used to extract roots, possibly backed by a shared {@link
+     *                    ArabicRootCache}
+     * @param maxRoots    the maximum number of roots emitted per token, {@link Integer#MAX_VALUE}
+     *                    for no limit
+     * @param frequencies ranks the roots of tokens having more than {@code maxRoots} roots, or
+     *                    {@code null} to keep the first roots, in the order of the analysis
+     */
+    public ArabicRootExtractorStemFilter(TokenStream input, ArabicRootExtractorStemmer stemmer,
+        int maxRoots, ArabicRootFrequencies frequencies) {
+        this(input, stemmer, maxRoots, frequencies, ArabicRootExtractorBudget.UNLIMITED);
+    }
+
+    /**
+     * @param input   the source {@link TokenStream}
+     * @param backend extracts the roots of each token, e.g. an {@link ArabicTokenRouter}
+     */
+    public ArabicRootExtractorStemFilter(TokenStream input, ArabicStemmingBackend backend) {
+        this(input, backend, Integer.MAX_VALUE, null, ArabicRootExtractorBudget.UNLIMITED);
+    }
+
+    /**
+     * @param input       the source {@link TokenStream}
+     * @param backend     extracts the roots of each token, e.g. an {@link
+     *                    ArabicRootExtractorStemmer} or an {@link ArabicTokenRouter}
+     * @param maxRoots    the maximum number of roots emitted per token, {@link Integer#MAX_VALUE}
+     *                    for no limit
+     * @param frequencies ranks the roots of tokens having more than {@code maxRoots} roots, or
+     *                    {@code null} to keep the first roots, in the order of the analysis
+     * @param budget      bounds the analysis of each token stream
+     */
+    public ArabicRootExtractorStemFilter(TokenStream input, ArabicStemmingBackend backend,
+        int maxRoots, ArabicRootFrequencies frequencies, ArabicRootExtractorBudget budget) {
+        this(input, backend, maxRoots, frequencies, budget, null);
+    }
+
+    /**
+     * @param input       the source {@link TokenStream}, whose attributes come from {@link
+     *                    ArabicRootTermAttributeImpl#FACTORY} if {@code vocabulary} is set
+     * @param backend     extracts the roots of each token, e.g. an {@link
+     *                    ArabicRootExtractorStemmer} or an {@link ArabicTokenRouter}
+     * @param maxRoots    the maximum number of roots emitted per token, {@link Integer#MAX_VALUE}
+     *                    for no limit
+     * @param frequencies ranks the roots of tokens having more than {@code maxRoots} roots, or
+     *                    {@code null} to keep the first roots, in the order of the analysis
+     * @param budget      bounds the analysis of each token stream
+     * @param vocabulary  translates roots to binary terms, or {@code null} to emit text terms
+     * @throws IllegalArgumentException if {@code vocabulary} is set but the terms of {@code input}
+     *                                  cannot be binary
+     */
+    public ArabicRootExtractorStemFilter(TokenStream input, ArabicStemmingBackend backend,
+        int maxRoots, ArabicRootFrequencies frequencies, ArabicRootExtractorBudget budget,
+        ArabicRootVocabulary vocabulary) {
         super(input);
+        this.backend = backend;
+        this.listener = backend.getListener();
+        this.pruner = maxRoots == Integer.MAX_VALUE ? null : new ArabicRootPruner(maxRoots,
+            frequencies != null ? frequencies : ArabicRootFrequencies.EMPTY);
+        this.budget = budget;
+        this.lightStemmer = budget.getFallback() == ArabicRootExtractorBudget.Fallback.LIGHT_STEM
+            ? new ArabicStemmer() : null;
+        this.vocabulary = vocabulary;
+        if (vocabulary != null) {
+            bytesTermAtt = addAttribute(BytesTermAttribute.class);
+            if (getAttribute(TermToBytesRefAttribute.class) != bytesTermAtt) {
+                throw new IllegalArgumentException("Binary root terms need a tokenizer created with "
+                    + "ArabicRootTermAttributeImpl.FACTORY");
+            }
+        } else {
+            bytesTermAtt = null;
+        }
     }
 
     @Override
     public boolean incrementToken() throws IOException {
-        if (buffer != null && !buffer.isEmpty()) {
-            CharsRef nextStem = buffer.remove(0);
-            restoreState(savedState);
+        if (cursor < roots.size()) {
+            savedState.copyTo(this);
             posIncAtt.setPositionIncrement(0);
-            termAtt.setEmpty().append(nextStem);
+            emit(cursor++);
             return true;
         }
 
@@ -73,25 +182,71 @@ public final class ArabicRootExtractorStemFilter extends TokenFilter {
         }
 
         if (keywordAttr.isKeyword()) {
+            if (listener != null) {
+                listener.keywordSkipped();
+            }
+            return true;
+        }
+
+        if (termAtt.length() > budget.getMaxTokenLength()
+            || analysisNanos >= budget.getMaxAnalysisNanos()) {
+            fallback();
             return true;
         }
 
-        buffer = this.stemmer.stem(termAtt.toString())
-            .stream()
-            .map(root -> new CharsRefBuilder().append(root).get())
-            .collect(Collectors.toList());
+        if (budget.isTimed()) {
+            long start = System.nanoTime();
+            backend.stem(termAtt.buffer(), 0, termAtt.length(), roots);
+            analysisNanos += System.nanoTime() - start;
+        } else {
+            backend.stem(termAtt.buffer(), 0, termAtt.length(), roots);
+        }
 
-        if (buffer.isEmpty()) { // we do not know this word, return it unchanged
+        if (roots.isEmpty()) { // we do not know this word, return it unchanged
             return true;
         }
+        if (pruner != null) {
+            pruner.prune(roots);
+        }
 
-        CharsRef stem = buffer.remove(0);
-        termAtt.setEmpty().append(stem);
+        emit(0);
+        cursor = 1;
 
-        if (!buffer.isEmpty()) {
-            savedState = captureState();
+        if (roots.size() > 1) {
+            // cheaper than captureState(): the copy is allocated once and then reused
+            if (savedState == null) {
+                savedState = cloneAttributes();
+            } else {
+                copyTo(savedState);
+            }
         }
 
         return true;
     }
-}
+
+    private void fallback() {
+        roots.clear();
+        if (listener != null) {
+            listener.fallbackApplied();
+        }
+        if (lightStemmer != null) {
+            termAtt.setLength(lightStemmer.stem(termAtt.buffer(), termAtt.length()));
+        }
+    }
+
+    private void emit(int root) {
+        termAtt.copyBuffer(roots.chars(), roots.offset(root), roots.length(root));
+        if (vocabulary != null) {
+            int id = vocabulary.id(roots.chars(), roots.offset(root), roots.length(root));
+            bytesTermAtt.setBytesRef(id >= 0 ? vocabulary.toTerm(id, rootTerm) : null);
+        }
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        roots.clear();
+        cursor = 0;
+        analysisNanos = 0;
+    }
+}
\ No newline at end of file
@@ -24,27 +24,158 @@
 
 package com.github.msarhan.lucene;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.TokenFilterFactory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ResourceLoader;
+import org.apache.lucene.util.ResourceLoaderAware;
 
 /**
  * Factory for {@link ArabicRootExtractorStemFilter}.
+ * <pre class="prettyprint">
+ * &lt;filter class="com.github.msarhan.lucene.ArabicRootExtractorStemFilterFactory"
+ *         maxRoots="2" rootFrequencies="root-frequencies.txt" cacheSize="100000"
+ *         snapshot="/var/lib/alkhalil/alkhalil.snapshot" dictionary="/var/lib/alkhalil/roots.fst"
+ *         maxTokenLength="20" maxAnalysisTime="50" fallback="light_stem" tokenRouting="true"
+ *         database="short" depth="root"/&gt;
+ * </pre>
+ * <ul> <li>{@code maxRoots}: the maximum number of roots emitted per token, unlimited by default.
+ * <li>{@code rootFrequencies}: a root frequency table ranking the roots of tokens having more than
+ * {@code maxRoots} roots, such as one written by {@link ArabicCorpusStatistics}; if omitted, the
+ * first roots are kept in the order of the analysis. <li>{@code cacheSize}: the size of a shared
+ * {@link ArabicRootCache}, no cache by default. <li>{@code snapshot}: the path of an {@link
+ * AlKhalilSnapshot} file, the {@linkplain ArabicMorphologyEngine#getDefault() default engine} is
+ * used if omitted. <li>{@code dictionary}: the path of a precompiled {@link ArabicRootDictionary}.
+ * <li>{@code maxTokenLength}, {@code maxAnalysisTime} (in milliseconds) and {@code fallback}
+ * ({@code light_stem} or {@code keep}): the {@link ArabicRootExtractorBudget} of the filter,
+ * unlimited by default. <li>{@code tokenRouting}: whether tokens are routed by script through an
+ * {@link ArabicTokenRouter}, {@code false} by default. <li>{@code database}: the {@link
+ * AlKhalilDatabase} the configuration expects ({@code long} or {@code short}); the factory fails if
+ * it is not the {@linkplain AlKhalilDatabase#current() current} one, which is chosen for the whole
+ * JVM. <li>{@code depth}: the {@link ArabicAnalysisDepth} of the stemmer ({@code clitic}, {@code
+ * stem} or {@code root}), {@code root} by default; the dictionary is only used for roots. </ul> <p>
+ * The snapshot and dictionary are files read from the file system rather than
+ * through the resource loader. Engines, caches and dictionaries are acquired from the {@linkplain
+ * ArabicMorphologyRegistry#getInstance() JVM-wide registry}, so factories configured alike share
+ * them; {@link #close()} releases them. </p>
  *
  * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
  */
-public class ArabicRootExtractorStemFilterFactory extends TokenFilterFactory {
+public class ArabicRootExtractorStemFilterFactory extends TokenFilterFactory implements
+    ResourceLoaderAware, Closeable {
+
+    private final int maxRoots;
+    private final String rootFrequenciesFile;
+    private final int cacheSize;
+    private final String snapshotFile;
+    private final String dictionaryFile;
+    private final ArabicRootExtractorBudget budget;
+    private final boolean tokenRouting;
+    private final AlKhalilDatabase database;
+    private final ArabicAnalysisDepth depth;
+    private ArabicRootFrequencies rootFrequencies;
+    private ArabicMorphologyRegistry.Lease<ArabicMorphologyEngine> engine;
+    private ArabicMorphologyRegistry.Lease<ArabicRootCache> cache;
+    private ArabicMorphologyRegistry.Lease<ArabicRootDictionary> dictionary;
 
     public ArabicRootExtractorStemFilterFactory(Map<String, String> args) {
         super(args);
+        maxRoots = getInt(args, "maxRoots", Integer.MAX_VALUE);
+        if (maxRoots < 1) {
+            throw new IllegalArgumentException("maxRoots must be at least 1, got " + maxRoots);
+        }
+        rootFrequenciesFile = get(args, "rootFrequencies");
+        cacheSize = getInt(args, "cacheSize", 0);
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative, got " + cacheSize);
+        }
+        snapshotFile = get(args, "snapshot");
+        dictionaryFile = get(args, "dictionary");
+        int maxTokenLength = getInt(args, "maxTokenLength", Integer.MAX_VALUE);
+        long maxAnalysisTime = getInt(args, "maxAnalysisTime", -1);
+        String fallback = get(args, "fallback", Arrays.asList("light_stem", "keep"), "keep");
+        budget = new ArabicRootExtractorBudget(maxTokenLength,
+            maxAnalysisTime < 0 ? Long.MAX_VALUE : maxAnalysisTime, TimeUnit.MILLISECONDS,
+            ArabicRootExtractorBudget.Fallback.valueOf(fallback.toUpperCase(Locale.ROOT)));
+        tokenRouting = getBoolean(args, "tokenRouting", false);
+        String database = get(args, "database", Arrays.asList("long", "short"), null);
+        this.database = database != null ? AlKhalilDatabase.forName(database) : null;
+        depth = ArabicAnalysisDepth.forName(
+            get(args, "depth", Arrays.asList("clitic", "stem", "root"), "root"));
         if (!args.isEmpty()) {
             throw new IllegalArgumentException("Unknown parameters: " + args);
         }
     }
 
+    @Override
+    public void inform(ResourceLoader loader) throws IOException {
+        if (rootFrequenciesFile != null) {
+            rootFrequencies = ArabicRootFrequencies.load(new InputStreamReader(
+                loader.openResource(rootFrequenciesFile), StandardCharsets.UTF_8));
+        }
+        if (database != null && database != AlKhalilDatabase.current()) {
+            // the database is JVM-global: one configuration must not change it for the others
+            throw new IllegalArgumentException("The " + database
+                + " AlKhalil database is configured, but the JVM uses the "
+                + AlKhalilDatabase.current() + " one; set the " + AlKhalilDatabase.PROPERTY
+                + " system property to select it");
+        }
+        close();
+        ArabicMorphologyRegistry registry = ArabicMorphologyRegistry.getInstance();
+        boolean success = false;
+        try {
+            if (snapshotFile != null) {
+                engine = registry.acquireEngine(Paths.get(snapshotFile));
+            }
+            if (cacheSize > 0) {
+                cache = registry.acquireCache(cacheSize, depth);
+            }
+            if (dictionaryFile != null && depth == ArabicAnalysisDepth.ROOT) {
+                dictionary = registry.acquireDictionary(Paths.get(dictionaryFile));
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
     @Override
     public ArabicRootExtractorStemFilter create(TokenStream input) {
-        return new ArabicRootExtractorStemFilter(input);
+        ArabicMorphologyEngine engine = this.engine != null ? this.engine.get() : null;
+        ArabicRootCache cache = this.cache != null ? this.cache.get() : null;
+        ArabicStemmingBackend backend = dictionary != null
+            ? new ArabicRootDictionaryStemmer(dictionary.get(), cache, engine)
+            : new ArabicRootExtractorStemmer(cache, engine, depth);
+        if (tokenRouting) {
+            backend = new ArabicTokenRouter(backend);
+        }
+        return new ArabicRootExtractorStemFilter(input, backend, maxRoots, rootFrequencies, budget);
+    }
+
+    /**
+     * Releases the engine, cache and dictionary of this factory to the registry. Filters created
+     * by this factory must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.close(engine, cache, dictionary);
+        } finally {
+            engine = null;
+            cache = null;
+            dictionary = null;
+        }
     }
 }
@@ -24,42 +24,247 @@
 
 package com.github.msarhan.lucene;
 
-import AlKhalil2.morphology.analyzer.AnalyzerTokens;
-import AlKhalil2.morphology.result.model.Result;
-import AlKhalil2.util.Settings;
+import org.apache.lucene.util.CharsRef;
 
-import java.util.*;
+import java.util.Set;
 
 /**
- * Factory for {@link ArabicRootExtractorStemFilter}.
+ * Extracts the roots of Arabic words using AlKhalil morphological analyzer. <p> Instances keep
+ * per-token scratch state and must not be shared between threads; share an {@link
+ * ArabicRootCache} and an {@link ArabicMorphologyEngine} instead. </p> <p> A stemmer built with
+ * another {@link ArabicAnalysisDepth} extracts clitic-stripped or morphological stems instead of
+ * roots; a cache must only be shared by stemmers of the same depth. </p>
  *
  * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
  */
-public class ArabicRootExtractorStemmer {
+public class ArabicRootExtractorStemmer implements ArabicStemmingBackend {
+
+    private final ArabicRootCache cache;
+    private final ArabicRootCache stemCache;
+    private final ArabicMorphologyEngine engine;
+    private final ArabicAnalysisDepth depth;
+    private final ArabicRootExtractorListener listener;
+    private final CharsRef key = new CharsRef();
+
+    /**
+     * Builds a stemmer that analyzes every token it is given with the {@linkplain
+     * ArabicMorphologyEngine#getDefault() default engine}.
+     */
+    public ArabicRootExtractorStemmer() {
+        this(null);
+    }
+
+    /**
+     * Builds a stemmer that looks tokens up in {@code cache} before analyzing them with the
+     * {@linkplain ArabicMorphologyEngine#getDefault() default engine}.
+     *
+     * @param cache a cache shared by several stemmers, or {@code null} to disable caching
+     */
+    public ArabicRootExtractorStemmer(ArabicRootCache cache) {
+        this(cache, null);
+    }
+
+    /**
+     * Builds a stemmer that looks tokens up in {@code cache} before analyzing them with {@code
+     * engine}.
+     *
+     * @param cache  a cache shared by several stemmers, or {@code null} to disable caching
+     * @param engine the engine analyzing uncached tokens, or {@code null} for the {@linkplain
+     *               ArabicMorphologyEngine#getDefault() default engine}
+     */
+    public ArabicRootExtractorStemmer(ArabicRootCache cache, ArabicMorphologyEngine engine) {
+        this(cache, null, engine);
+    }
+
+    /**
+     * Builds a stemmer that analyzes tokens to the given depth.
+     *
+     * @param cache  a cache shared by stemmers of the same depth, or {@code null} to disable
+     *               caching
+     * @param engine the engine analyzing uncached tokens, or {@code null} for the {@linkplain
+     *               ArabicMorphologyEngine#getDefault() default engine}
+     * @param depth  what {@link #stem(char[], int, int, ArabicRootBuffer)} extracts
+     */
+    public ArabicRootExtractorStemmer(ArabicRootCache cache, ArabicMorphologyEngine engine,
+        ArabicAnalysisDepth depth) {
+        this(cache, null, engine, depth);
+    }
+
+    /**
+     * Builds a stemmer that also caches the stems of the tokens it analyzes, for {@link
+     * #stem(char[], int, int, ArabicRootBuffer, ArabicRootBuffer)}.
+     *
+     * @param cache     a cache of roots shared by several stemmers, or {@code null} to disable
+     *                  caching
+     * @param stemCache a cache of stems shared by several stemmers, or {@code null} to disable
+     *                  caching
+     * @param engine    the engine analyzing uncached tokens, or {@code null} for the {@linkplain
+     *                  ArabicMorphologyEngine#getDefault() default engine}
+     */
+    public ArabicRootExtractorStemmer(ArabicRootCache cache, ArabicRootCache stemCache,
+        ArabicMorphologyEngine engine) {
+        this(cache, stemCache, engine, ArabicAnalysisDepth.ROOT);
+    }
+
+    private ArabicRootExtractorStemmer(ArabicRootCache cache, ArabicRootCache stemCache,
+        ArabicMorphologyEngine engine, ArabicAnalysisDepth depth) {
+        this.cache = cache;
+        this.stemCache = stemCache;
+        this.engine = engine != null ? engine : ArabicMorphologyEngine.getDefault();
+        this.depth = depth;
+        this.listener = this.engine.getListener();
+    }
+
+    /**
+     * @return the engine analyzing uncached tokens
+     */
+    public ArabicMorphologyEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return what {@link #stem(char[], int, int, ArabicRootBuffer)} extracts
+     */
+    public ArabicAnalysisDepth getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the listener of the engine
+     */
+    @Override
+    public ArabicRootExtractorListener getListener() {
+        return listener;
+    }
 
     public Set<String> stem(String token) {
-        final AnalyzerTokens analyzerTokens = new AnalyzerTokens();
-        Set<String> roots = new LinkedHashSet<>(1);
-        for (Object o : analyzerTokens.analyzerToken(token)) {
-            Result res = (Result) o;
-            roots.add(!"#".equals(res.getRoot()) ? res.getRoot() : res.getStem());
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        char[] buffer = token.toCharArray();
+        stem(buffer, 0, buffer.length, roots);
+        return roots.toSet();
+    }
+
+    /**
+     * Extracts the roots of a token, or its stems if this stemmer has a shallower {@linkplain
+     * #getDepth() depth}. Once warm, a cached token is stemmed without allocating.
+     *
+     * @param buffer token chars
+     * @param offset offset of the token in {@code buffer}
+     * @param length length of the token
+     * @param roots  cleared, then receives the roots of the token; left empty for unknown words
+     */
+    @Override
+    public void stem(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+        if (listener == null) {
+            doStem(buffer, offset, length, roots);
+            return;
+        }
+        long start = System.nanoTime();
+        doStem(buffer, offset, length, roots);
+        listener.tokenStemmed(buffer, offset, length, roots.size(), System.nanoTime() - start);
+    }
+
+    private void doStem(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+        roots.clear();
+        if (cache == null) {
+            analyze(buffer, offset, length, roots);
+            return;
+        }
+
+        key.chars = buffer;
+        key.offset = offset;
+        key.length = length;
+        try {
+            if (!cache.get(key, roots)) {
+                analyze(buffer, offset, length, roots);
+                cache.put(key, roots);
+            }
+        } finally {
+            key.chars = CharsRef.EMPTY_CHARS;
+            key.offset = key.length = 0;
         }
-        return roots;
-    }
-
-    static {
-        Settings.changeSettings(
-            false,
-            false,
-            true, // stem
-            false,
-            false,
-            false,
-            false,
-            false,
-            true, // root
-            false,
-            false
-        );
+    }
+
+    /**
+     * Extracts the stems and the roots of a token from a single morphological analysis, whatever
+     * the depth of this stemmer. The token is only looked up in the caches if both a root cache
+     * and a stem cache are configured.
+     *
+     * @param buffer token chars
+     * @param offset offset of the token in {@code buffer}
+     * @param length length of the token
+     * @param stems  cleared, then receives the stems of the token; left empty for unknown words
+     * @param roots  cleared, then receives the roots of the token; left empty for unknown words
+     */
+    public void stem(char[] buffer, int offset, int length, ArabicRootBuffer stems,
+        ArabicRootBuffer roots) {
+        if (listener == null) {
+            doStem(buffer, offset, length, stems, roots);
+            return;
+        }
+        long start = System.nanoTime();
+        doStem(buffer, offset, length, stems, roots);
+        listener.tokenStemmed(buffer, offset, length, roots.size(), System.nanoTime() - start);
+    }
+
+    private void doStem(char[] buffer, int offset, int length, ArabicRootBuffer stems,
+        ArabicRootBuffer roots) {
+        stems.clear();
+        roots.clear();
+        if (cache == null || stemCache == null) {
+            analyze(buffer, offset, length, stems, roots);
+            return;
+        }
+
+        key.chars = buffer;
+        key.offset = offset;
+        key.length = length;
+        try {
+            if (!cache.get(key, roots) || !stemCache.get(key, stems)) {
+                stems.clear();
+                roots.clear();
+                analyze(buffer, offset, length, stems, roots);
+                cache.put(key, roots);
+                stemCache.put(key, stems);
+            }
+        } finally {
+            key.chars = CharsRef.EMPTY_CHARS;
+            key.offset = key.length = 0;
+        }
+    }
+
+    /**
+     * Runs the analysis of a token that is not cached, to the depth of this stemmer.
+     *
+     * @param buffer token chars
+     * @param offset offset of the token in {@code buffer}
+     * @param length length of the token
+     * @param roots  an empty buffer receiving the roots, or the stems, of the token
+     */
+    protected void analyze(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+        switch (depth) {
+            case CLITIC:
+                engine.stripClitics(buffer, offset, length, roots);
+                break;
+            case STEM:
+                engine.analyzeStems(buffer, offset, length, roots);
+                break;
+            default:
+                engine.analyze(buffer, offset, length, roots);
+        }
+    }
+
+    /**
+     * Runs the morphological analysis of a token whose stems and roots are not cached.
+     *
+     * @param buffer token chars
+     * @param offset offset of the token in {@code buffer}
+     * @param length length of the token
+     * @param stems  an empty buffer receiving the stems of the token
+     * @param roots  an empty buffer receiving the roots of the token
+     */
+    protected void analyze(char[] buffer, int offset, int length, ArabicRootBuffer stems,
+        ArabicRootBuffer roots) {
+        engine.analyze(buffer, offset, length, stems, roots);
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.CharArrayMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An immutable table of root frequencies, used to keep only the most frequent roots of ambiguous
+ * words. <p> Tables are text files holding one root per line, followed by whitespace and its
+ * frequency; lines starting with {@code #} are ignored. Roots missing from a table have a frequency
+ * of {@code 0}. No table ships with this library: frequencies depend on the collection, and
+ * {@link ArabicCorpusStatistics} derives a table from a corpus. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootExtractorStemFilter
+ */
+public final class ArabicRootFrequencies {
+
+    /**
+     * An empty table, ranking every root equally: the first roots of a token are kept, in the
+     * order the analysis returned them.
+     */
+    public static final ArabicRootFrequencies EMPTY = new ArabicRootFrequencies(
+        CharArrayMap.unmodifiableMap(new CharArrayMap<>(0, false)));
+
+    private final CharArrayMap<Long> frequencies;
+
+    private ArabicRootFrequencies(CharArrayMap<Long> frequencies) {
+        this.frequencies = frequencies;
+    }
+
+    /**
+     * Reads a frequency table.
+     *
+     * @param reader the table, closed by this method
+     * @return the root frequencies
+     * @throws IOException if the table cannot be read or is malformed
+     */
+    public static ArabicRootFrequencies load(Reader reader) throws IOException {
+        CharArrayMap<Long> frequencies = new CharArrayMap<>(256, false);
+        try (BufferedReader in = new BufferedReader(reader)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length != 2) {
+                    throw new IOException("Malformed root frequency at line " + lineNumber + ": " + line);
+                }
+                try {
+                    frequencies.put(fields[0], Long.valueOf(fields[1]));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed root frequency at line " + lineNumber + ": " + line, e);
+                }
+            }
+        }
+        return new ArabicRootFrequencies(CharArrayMap.unmodifiableMap(frequencies));
+    }
+
+    /**
+     * Reads a UTF-8 frequency table.
+     *
+     * @param path the table
+     * @return the root frequencies
+     * @throws IOException if the table cannot be read or is malformed
+     */
+    public static ArabicRootFrequencies load(Path path) throws IOException {
+        return load(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the frequency of a root, {@code 0} if it is not in this table
+     */
+    public long frequency(char[] buffer, int offset, int length) {
+        Long frequency = frequencies.get(buffer, offset, length);
+        return frequency == null ? 0 : frequency;
+    }
+
+    /**
+     * @return the number of roots in this table
+     */
+    public int size() {
+        return frequencies.size();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.util.ArrayUtil;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the {@code maxRoots} most frequent roots of an {@link ArabicRootBuffer}, in their original
+ * order. Roots of equal frequency are ranked in their original order. Scratch arrays are reused, so
+ * instances must be confined to one thread.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+final class ArabicRootPruner {
+
+    private final int maxRoots;
+    private final ArabicRootFrequencies frequencies;
+    private long[] scores = new long[8];
+    private int[] order = new int[8];
+    private boolean[] keep = new boolean[8];
+
+    ArabicRootPruner(int maxRoots, ArabicRootFrequencies frequencies) {
+        if (maxRoots < 1) {
+            throw new IllegalArgumentException("maxRoots must be at least 1, got " + maxRoots);
+        }
+        this.maxRoots = maxRoots;
+        this.frequencies = frequencies;
+    }
+
+    void prune(ArabicRootBuffer roots) {
+        int size = roots.size();
+        if (size <= maxRoots) {
+            return;
+        }
+
+        scores = ArrayUtil.grow(scores, size);
+        order = ArrayUtil.grow(order, size);
+        if (keep.length < size) {
+            keep = new boolean[order.length];
+        }
+        for (int i = 0; i < size; i++) {
+            scores[i] = frequencies.frequency(roots.chars(), roots.offset(i), roots.length(i));
+            // stable insertion sort, by decreasing frequency
+            int j = i;
+            while (j > 0 && scores[order[j - 1]] < scores[i]) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+
+        Arrays.fill(keep, 0, size, false);
+        for (int i = 0; i < maxRoots; i++) {
+            keep[order[i]] = true;
+        }
+        roots.retain(keep);
+    }
+}
@@ -0,0 +1,754 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.util.CharsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent store of the roots extracted for a surface form, so that a warm cache survives
+ * restarts. <p> A store is a directory holding an append-only log of {@code surface -> roots}
+ * records and a memory-mapped open-addressing hash index of the log. Every record carries a CRC,
+ * so a record torn by a crash is detected and dropped when the store is next opened for writing.
+ * Records are written to the mapped log without forcing it to disk; {@link #sync()} and {@link
+ * #close()} do. Replaced records stay in the log until {@link #compact()} rewrites it. </p> <p> A
+ * single JVM may open a store for writing, while any number of JVMs on the same host open it
+ * {@linkplain #openReadOnly(Path) read-only} and see the records it appends. A new node can be
+ * seeded by copying the directory of a closed store. </p> <p> A store is thread-safe, and is
+ * meant to back an {@link ArabicRootCache} shared by every stemmer of a process. The log is
+ * limited to 2 GB; records that do not fit are not stored. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootCache#ArabicRootCache(int, ArabicRootStore)
+ */
+public final class ArabicRootStore implements Closeable {
+
+    static final String LOG_FILE = "roots.log";
+    static final String INDEX_FILE = "roots.idx";
+    static final String LOCK_FILE = "write.lock";
+    static final int VERSION_CURRENT = 0;
+
+    private static final int LOG_MAGIC = 0x4152534c; // "ARSL"
+    private static final int INDEX_MAGIC = 0x41525349; // "ARSI"
+
+    // log header: magic, version, generation, committed length, unused
+    private static final int LOG_GENERATION = 8;
+    static final int LOG_COMMITTED = 16;
+    private static final int LOG_HEADER = 24;
+
+    // index header: magic, version, generation, capacity, size, covered log length, moved flag
+    private static final int INDEX_GENERATION = 8;
+    private static final int INDEX_CAPACITY = 16;
+    private static final int INDEX_SIZE = 20;
+    static final int INDEX_COVERED = 24;
+    private static final int INDEX_MOVED = 28;
+    private static final int INDEX_HEADER = 32;
+
+    // record: payload length, crc of the payload, then the payload: token length, token chars,
+    // root count, and the length and chars of each root
+    private static final int RECORD_HEADER = 8;
+
+    static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int INITIAL_LOG_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final boolean readOnly;
+    private final FileChannel lockChannel;
+    private volatile FileChannel logChannel;
+    private volatile MappedByteBuffer log;
+    private volatile FileChannel indexChannel;
+    private volatile MappedByteBuffer index;
+
+    private ArabicRootStore(Path directory, boolean readOnly, FileChannel lockChannel) {
+        this.directory = directory;
+        this.readOnly = readOnly;
+        this.lockChannel = lockChannel;
+    }
+
+    /**
+     * Opens a store for reading and writing, creating it if needed. A store left inconsistent by a
+     * crash is recovered: torn records are dropped and the index is brought up to date with the
+     * log.
+     *
+     * @param directory the directory of the store
+     * @return the opened store
+     * @throws IOException if the store cannot be opened, or is already open for writing
+     */
+    public static ArabicRootStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        ArabicRootStore store = new ArabicRootStore(directory, false, lockChannel);
+        boolean success = false;
+        try {
+            FileLock lock;
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException("Root store is already open for writing: " + directory);
+            }
+            store.openForWriting();
+            success = true;
+            return store;
+        } finally {
+            if (!success) {
+                store.close();
+            }
+        }
+    }
+
+    /**
+     * Opens an existing store read-only. The store may be open for writing by another JVM; records
+     * it appends are visible to this one.
+     *
+     * @param directory the directory of the store
+     * @return the opened store
+     * @throws IOException if the store cannot be read, or needs to be recovered by opening it for
+     *                     writing
+     */
+    public static ArabicRootStore openReadOnly(Path directory) throws IOException {
+        ArabicRootStore store = new ArabicRootStore(directory, true, null);
+        store.openForReading();
+        return store;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return the number of words in this store
+     */
+    public int size() {
+        return index.getInt(INDEX_SIZE);
+    }
+
+    /**
+     * Copies the roots stored for {@code token} into {@code roots}.
+     *
+     * @param token surface form, as it reaches the stemmer
+     * @param roots receives the stored roots, nothing is added if the word is unknown
+     * @return {@code true} if the word is stored
+     */
+    public boolean get(CharsRef token, ArabicRootBuffer roots) {
+        if (find(token, roots)) {
+            return true;
+        }
+        if (readOnly && index.getInt(INDEX_MOVED) != 0) {
+            reopen();
+            return find(token, roots);
+        }
+        return false;
+    }
+
+    private boolean find(CharsRef token, ArabicRootBuffer roots) {
+        MappedByteBuffer index = this.index;
+        int mask = index.getInt(INDEX_CAPACITY) - 1;
+        for (int slot = hash(token) & mask; ; slot = (slot + 1) & mask) {
+            int offset = index.getInt(INDEX_HEADER + slot * 4);
+            if (offset == 0) {
+                return false;
+            }
+            ByteBuffer log = logCovering(offset);
+            if (log != null && tokenEquals(log, offset, token)) {
+                if (!checksumMatches(log, offset)) {
+                    return false;
+                }
+                readRoots(log, offset, roots);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Stores the roots of {@code token}, replacing the roots stored for it before.
+     *
+     * @param token surface form, as it reaches the stemmer
+     * @param roots roots of the word, empty if the word is unknown
+     * @throws IllegalStateException if this store is read-only
+     */
+    public synchronized void put(CharsRef token, ArabicRootBuffer roots) {
+        checkWritable();
+        int length = recordLength(token.length, roots);
+        if (length < 0) {
+            return;
+        }
+        try {
+            int slot = slot(index, log, token);
+            int existing = index.getInt(INDEX_HEADER + slot * 4);
+            if (existing != 0 && rootsEqual(log, existing, roots)) {
+                return;
+            }
+            if (existing == 0 && (index.getInt(INDEX_SIZE) + 1) * 2 > index.getInt(INDEX_CAPACITY)) {
+                resize(index.getInt(INDEX_CAPACITY) * 2);
+                slot = slot(index, log, token);
+            }
+            int offset = append(token, roots, length);
+            if (offset == 0) {
+                return;
+            }
+            index.putInt(INDEX_HEADER + slot * 4, offset);
+            if (existing == 0) {
+                index.putInt(INDEX_SIZE, index.getInt(INDEX_SIZE) + 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces every record written so far to disk. They survive a crash from then on.
+     *
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        if (readOnly) {
+            return;
+        }
+        log.force();
+        index.putInt(INDEX_COVERED, log.getInt(LOG_COMMITTED));
+        index.force();
+    }
+
+    /**
+     * Rewrites the log without the records that were replaced or dropped, and rebuilds the index
+     * to fit the remaining words. Read-only stores of other JVMs switch to the new files on their
+     * next miss.
+     *
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        checkWritable();
+        MappedByteBuffer index = this.index;
+        int capacity = index.getInt(INDEX_CAPACITY);
+        int[] offsets = new int[index.getInt(INDEX_SIZE)];
+        int count = 0;
+        long length = LOG_HEADER;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = index.getInt(INDEX_HEADER + slot * 4);
+            if (offset != 0) {
+                offsets[count++] = offset;
+                length += RECORD_HEADER + log.getInt(offset);
+            }
+        }
+
+        long generation = ThreadLocalRandom.current().nextLong();
+        Path tmp = directory.resolve(LOG_FILE + ".tmp");
+        FileChannel newLogChannel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer newLog = newLogChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+            Math.max(length, INITIAL_LOG_SIZE));
+        newLog.putInt(0, LOG_MAGIC);
+        newLog.putInt(4, VERSION_CURRENT);
+        newLog.putLong(LOG_GENERATION, generation);
+        int end = LOG_HEADER;
+        for (int i = 0; i < count; i++) {
+            int recordLength = RECORD_HEADER + log.getInt(offsets[i]);
+            ByteBuffer record = log.duplicate();
+            record.position(offsets[i]).limit(offsets[i] + recordLength);
+            newLog.duplicate().position(end).put(record);
+            offsets[i] = end;
+            end += recordLength;
+        }
+        newLog.putInt(LOG_COMMITTED, end);
+        newLog.force();
+        Files.move(tmp, directory.resolve(LOG_FILE), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+
+        FileChannel oldLogChannel = logChannel;
+        logChannel = newLogChannel;
+        log = newLog;
+        oldLogChannel.close();
+        writeIndex(capacityFor(count), offsets, count, end);
+    }
+
+    private void resize(int capacity) throws IOException {
+        MappedByteBuffer index = this.index;
+        int[] offsets = new int[index.getInt(INDEX_SIZE)];
+        int count = 0;
+        for (int slot = 0, n = index.getInt(INDEX_CAPACITY); slot < n; slot++) {
+            int offset = index.getInt(INDEX_HEADER + slot * 4);
+            if (offset != 0) {
+                offsets[count++] = offset;
+            }
+        }
+        writeIndex(capacity, offsets, count, index.getInt(INDEX_COVERED));
+    }
+
+    /**
+     * Writes a new index of the given records next to the current one and atomically replaces it.
+     * Records of the same token are resolved in favor of the last one in the log.
+     */
+    private void writeIndex(int capacity, int[] offsets, int count, int covered) throws IOException {
+        Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+        FileChannel newIndexChannel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer newIndex = newIndexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+            INDEX_HEADER + capacity * 4L);
+        newIndex.putInt(0, INDEX_MAGIC);
+        newIndex.putInt(4, VERSION_CURRENT);
+        newIndex.putLong(INDEX_GENERATION, log.getLong(LOG_GENERATION));
+        newIndex.putInt(INDEX_CAPACITY, capacity);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = slot(newIndex, log, offsets[i]);
+            int existing = newIndex.getInt(INDEX_HEADER + slot * 4);
+            if (existing == 0) {
+                size++;
+            }
+            if (offsets[i] > existing) {
+                newIndex.putInt(INDEX_HEADER + slot * 4, offsets[i]);
+            }
+        }
+        newIndex.putInt(INDEX_SIZE, size);
+        newIndex.putInt(INDEX_COVERED, covered);
+        newIndex.force();
+        Files.move(tmp, directory.resolve(INDEX_FILE), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+
+        FileChannel oldIndexChannel = indexChannel;
+        MappedByteBuffer oldIndex = this.index;
+        indexChannel = newIndexChannel;
+        this.index = newIndex;
+        if (oldIndex != null) {
+            if (oldIndex.limit() >= INDEX_HEADER) {
+                oldIndex.putInt(INDEX_MOVED, 1);
+            }
+            oldIndexChannel.close();
+        }
+    }
+
+    private void openForWriting() throws IOException {
+        Path logPath = directory.resolve(LOG_FILE);
+        boolean created = !Files.exists(logPath);
+        logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+            Math.max(logChannel.size(), INITIAL_LOG_SIZE));
+        if (created || log.getInt(0) == 0) {
+            log.putInt(0, LOG_MAGIC);
+            log.putInt(4, VERSION_CURRENT);
+            log.putLong(LOG_GENERATION, ThreadLocalRandom.current().nextLong());
+            log.putInt(LOG_COMMITTED, LOG_HEADER);
+            log.force();
+        }
+        checkLogHeader(log);
+
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexPath)) {
+            indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+        }
+        recover();
+    }
+
+    /**
+     * Drops the records torn by a crash and indexes the records written since the last {@link
+     * #sync()}. The index is rebuilt from the log if it is missing or does not match the log.
+     */
+    private void recover() throws IOException {
+        int committed = log.getInt(LOG_COMMITTED);
+        boolean indexValid = index != null && indexMatches(index, log)
+            && index.getInt(INDEX_COVERED) <= committed && recountSlots(index, committed);
+        IntsRefBuilder offsets = new IntsRefBuilder();
+        int end = scan(indexValid ? index.getInt(INDEX_COVERED) : LOG_HEADER, committed, offsets);
+        if (end < committed) {
+            log.putInt(LOG_COMMITTED, end);
+            log.force();
+            if (indexValid) { // the index may point to the torn records
+                indexValid = false;
+                offsets.clear();
+                scan(LOG_HEADER, end, offsets);
+            }
+        }
+
+        if (!indexValid) {
+            writeIndex(capacityFor(offsets.length()), offsets.ints(), offsets.length(), end);
+            return;
+        }
+        for (int i = 0; i < offsets.length(); i++) {
+            if ((index.getInt(INDEX_SIZE) + 1) * 2 > index.getInt(INDEX_CAPACITY)) {
+                resize(index.getInt(INDEX_CAPACITY) * 2);
+            }
+            int offset = offsets.intAt(i);
+            int slot = slot(index, log, offset);
+            int existing = index.getInt(INDEX_HEADER + slot * 4);
+            if (existing == 0) {
+                index.putInt(INDEX_SIZE, index.getInt(INDEX_SIZE) + 1);
+            }
+            if (offset > existing) {
+                index.putInt(INDEX_HEADER + slot * 4, offset);
+            }
+        }
+        sync();
+    }
+
+    /**
+     * Collects the offsets of the intact records between {@code from} and {@code to}.
+     *
+     * @return the end of the last intact record
+     */
+    private int scan(int from, int to, IntsRefBuilder offsets) {
+        int end = from;
+        while (end < to) {
+            int recordEnd = recordEnd(log, end, to);
+            if (recordEnd < 0 || !checksumMatches(log, end)) {
+                break;
+            }
+            offsets.append(end);
+            end = recordEnd;
+        }
+        return end;
+    }
+
+    /**
+     * Fixes the size of an index whose header was not written back before a crash.
+     *
+     * @return {@code false} if the index points past {@code committed}, to records that were lost
+     */
+    private static boolean recountSlots(ByteBuffer index, int committed) {
+        int size = 0;
+        for (int slot = 0, n = index.getInt(INDEX_CAPACITY); slot < n; slot++) {
+            int offset = index.getInt(INDEX_HEADER + slot * 4);
+            if (offset >= committed) {
+                return false;
+            }
+            if (offset != 0) {
+                size++;
+            }
+        }
+        index.putInt(INDEX_SIZE, size);
+        return true;
+    }
+
+    private void openForReading() throws IOException {
+        FileChannel newLogChannel = FileChannel.open(directory.resolve(LOG_FILE),
+            StandardOpenOption.READ);
+        FileChannel newIndexChannel = null;
+        boolean success = false;
+        try {
+            MappedByteBuffer newLog = newLogChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                newLogChannel.size());
+            checkLogHeader(newLog);
+            newIndexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                StandardOpenOption.READ);
+            MappedByteBuffer newIndex = newIndexChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                newIndexChannel.size());
+            if (!indexMatches(newIndex, newLog)) {
+                throw new IOException("Root store index does not match its log, open it for "
+                    + "writing to recover it: " + directory);
+            }
+            FileChannel oldLogChannel = logChannel;
+            FileChannel oldIndexChannel = indexChannel;
+            logChannel = newLogChannel;
+            log = newLog;
+            indexChannel = newIndexChannel;
+            index = newIndex;
+            success = true;
+            if (oldLogChannel != null) {
+                oldLogChannel.close();
+                oldIndexChannel.close();
+            }
+        } finally {
+            if (!success) {
+                newLogChannel.close();
+                if (newIndexChannel != null) {
+                    newIndexChannel.close();
+                }
+            }
+        }
+    }
+
+    private synchronized void reopen() {
+        if (index.getInt(INDEX_MOVED) == 0) {
+            return; // another thread reopened the store meanwhile
+        }
+        try {
+            openForReading();
+        } catch (IOException e) {
+            // the writer is replacing the files, keep reading the old ones until the next miss
+        }
+    }
+
+    /**
+     * Returns a mapping of the log that holds the whole record at {@code offset}, remapping the
+     * log of a read-only store if the record was appended since it was mapped.
+     */
+    private ByteBuffer logCovering(int offset) {
+        MappedByteBuffer log = this.log;
+        if (recordEnd(log, offset, log.limit()) < 0 && readOnly) {
+            log = remapLog();
+        }
+        return recordEnd(log, offset, log.limit()) < 0 ? null : log;
+    }
+
+    private synchronized MappedByteBuffer remapLog() {
+        try {
+            long size = logChannel.size();
+            if (size > log.limit() && size <= Integer.MAX_VALUE) {
+                log = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return log;
+    }
+
+    private int append(CharsRef token, ArabicRootBuffer roots, int length) throws IOException {
+        int offset = log.getInt(LOG_COMMITTED);
+        long end = (long) offset + length;
+        if (end > Integer.MAX_VALUE) {
+            return 0;
+        }
+        if (end > log.limit()) {
+            log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.min(Math.max(end, log.limit() * 2L), Integer.MAX_VALUE));
+        }
+
+        MappedByteBuffer log = this.log;
+        int position = offset + RECORD_HEADER;
+        log.putChar(position, (char) token.length);
+        position += 2;
+        for (int i = 0; i < token.length; i++, position += 2) {
+            log.putChar(position, token.chars[token.offset + i]);
+        }
+        log.put(position++, (byte) roots.size());
+        char[] chars = roots.chars();
+        for (int r = 0; r < roots.size(); r++) {
+            log.putChar(position, (char) roots.length(r));
+            position += 2;
+            for (int i = roots.offset(r), n = i + roots.length(r); i < n; i++, position += 2) {
+                log.putChar(position, chars[i]);
+            }
+        }
+        log.putInt(offset, length - RECORD_HEADER);
+        log.putInt(offset + 4, checksum(log, offset));
+        log.putInt(LOG_COMMITTED, (int) end);
+        return offset;
+    }
+
+    /**
+     * @return the length of the record of {@code token} and {@code roots}, or {@code -1} if it
+     * cannot be stored
+     */
+    private static int recordLength(int tokenLength, ArabicRootBuffer roots) {
+        if (tokenLength == 0 || tokenLength > Character.MAX_VALUE || roots.size() > 255) {
+            return -1;
+        }
+        long length = RECORD_HEADER + 2 + tokenLength * 2L + 1;
+        for (int r = 0; r < roots.size(); r++) {
+            length += 2 + roots.length(r) * 2L;
+        }
+        return length > Integer.MAX_VALUE / 2 ? -1 : (int) length;
+    }
+
+    /**
+     * @return the end of the record at {@code offset}, or {@code -1} if it does not fit before
+     * {@code limit}
+     */
+    private static int recordEnd(ByteBuffer log, int offset, int limit) {
+        if (offset < LOG_HEADER || offset > limit - RECORD_HEADER - 3) {
+            return -1;
+        }
+        long end = (long) offset + RECORD_HEADER + log.getInt(offset);
+        if (end > limit || log.getInt(offset) < 3) {
+            return -1;
+        }
+        return (int) end;
+    }
+
+    private static int checksum(ByteBuffer log, int offset) {
+        ByteBuffer payload = log.duplicate();
+        payload.position(offset + RECORD_HEADER).limit(offset + RECORD_HEADER + log.getInt(offset));
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static boolean checksumMatches(ByteBuffer log, int offset) {
+        return log.getInt(offset + 4) == checksum(log, offset);
+    }
+
+    private static boolean tokenEquals(ByteBuffer log, int offset, CharsRef token) {
+        int position = offset + RECORD_HEADER;
+        if (log.getChar(position) != token.length
+            || 2 + token.length * 2 > log.getInt(offset) - 1) {
+            return false;
+        }
+        position += 2;
+        for (int i = 0; i < token.length; i++, position += 2) {
+            if (log.getChar(position) != token.chars[token.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void readRoots(ByteBuffer log, int offset, ArabicRootBuffer roots) {
+        int position = offset + RECORD_HEADER;
+        position += 2 + log.getChar(position) * 2;
+        int count = log.get(position++) & 0xff;
+        StringBuilder root = new StringBuilder();
+        for (int r = 0; r < count; r++) {
+            int length = log.getChar(position);
+            position += 2;
+            root.setLength(0);
+            for (int i = 0; i < length; i++, position += 2) {
+                root.append(log.getChar(position));
+            }
+            roots.add(root);
+        }
+    }
+
+    private static boolean rootsEqual(ByteBuffer log, int offset, ArabicRootBuffer roots) {
+        ArabicRootBuffer stored = new ArabicRootBuffer();
+        readRoots(log, offset, stored);
+        if (stored.size() != roots.size()) {
+            return false;
+        }
+        for (int r = 0; r < roots.size(); r++) {
+            if (!stored.contains(roots.chars(), roots.offset(r), roots.length(r))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the slot of {@code token} in {@code index}, or the empty slot where it belongs
+     */
+    private static int slot(ByteBuffer index, ByteBuffer log, CharsRef token) {
+        int mask = index.getInt(INDEX_CAPACITY) - 1;
+        for (int slot = hash(token) & mask; ; slot = (slot + 1) & mask) {
+            int offset = index.getInt(INDEX_HEADER + slot * 4);
+            if (offset == 0 || tokenEquals(log, offset, token)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * @return the slot of the token of the record at {@code recordOffset} in {@code index}, or the
+     * empty slot where it belongs
+     */
+    private static int slot(ByteBuffer index, ByteBuffer log, int recordOffset) {
+        int position = recordOffset + RECORD_HEADER;
+        char[] chars = new char[log.getChar(position)];
+        position += 2;
+        for (int i = 0; i < chars.length; i++, position += 2) {
+            chars[i] = log.getChar(position);
+        }
+        return slot(index, log, new CharsRef(chars, 0, chars.length));
+    }
+
+    private static int hash(CharsRef token) {
+        int h = 0;
+        for (int i = token.offset, end = token.offset + token.length; i < end; i++) {
+            h = 31 * h + token.chars[i];
+        }
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = INITIAL_CAPACITY;
+        while (size * 2L > capacity) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static void checkLogHeader(ByteBuffer log) throws IOException {
+        if (log.limit() < LOG_HEADER || log.getInt(0) != LOG_MAGIC) {
+            throw new IOException("Not a root store log");
+        }
+        int version = log.getInt(4);
+        if (version != VERSION_CURRENT) {
+            throw new IOException("Unsupported root store version: " + version);
+        }
+    }
+
+    private static boolean indexMatches(ByteBuffer index, ByteBuffer log) {
+        return index.limit() >= INDEX_HEADER
+            && index.getInt(0) == INDEX_MAGIC
+            && index.getInt(4) == VERSION_CURRENT
+            && index.getLong(INDEX_GENERATION) == log.getLong(LOG_GENERATION)
+            && index.limit() == INDEX_HEADER + index.getInt(INDEX_CAPACITY) * 4L
+            && Integer.bitCount(index.getInt(INDEX_CAPACITY)) == 1;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Root store is read-only: " + directory);
+        }
+    }
+
+    /**
+     * Forces the records written so far to disk, then releases the files of this store.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (!readOnly && log != null && index != null) {
+                sync();
+            }
+        } finally {
+            if (logChannel != null) {
+                logChannel.close();
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+            if (lockChannel != null) {
+                lockChannel.close(); // releases the write lock
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ArabicRootStore{directory=" + directory + ", size=" + size() + ", readOnly="
+            + readOnly + "}";
+    }
+}
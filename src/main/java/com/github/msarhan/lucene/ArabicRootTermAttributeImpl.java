@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.tokenattributes.BytesTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PackedTokenAttributeImpl;
+import org.apache.lucene.util.AttributeFactory;
+import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+
+import java.util.Objects;
+
+/**
+ * The token attributes of a stream whose terms may be binary. <p> Lucene indexes the bytes
+ * returned by {@link #getBytesRef()}; Lucene's default attributes always derive them from the
+ * chars of the term. This implementation returns the bytes given to {@link #setBytesRef(BytesRef)}
+ * instead, until the attributes are cleared, while the chars stay available to filters and
+ * highlighters. Tokenizers must be created with {@link #FACTORY} for {@link
+ * ArabicRootExtractorStemFilter} to emit binary root terms. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootVocabulary
+ */
+public class ArabicRootTermAttributeImpl extends PackedTokenAttributeImpl implements
+    BytesTermAttribute {
+
+    /**
+     * Creates {@link ArabicRootTermAttributeImpl}s for the attributes it implements, and Lucene's
+     * default implementations for the others.
+     */
+    public static final AttributeFactory FACTORY = AttributeFactory.getStaticImplementation(
+        AttributeFactory.DEFAULT_ATTRIBUTE_FACTORY, ArabicRootTermAttributeImpl.class);
+
+    private BytesRef bytes;
+    private BytesRefBuilder copy = new BytesRefBuilder();
+
+    public ArabicRootTermAttributeImpl() {
+    }
+
+    /**
+     * @param bytes the bytes of the term, or {@code null} to index the chars of the term; they
+     *              must not be modified until the attributes are cleared
+     */
+    @Override
+    public void setBytesRef(BytesRef bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public BytesRef getBytesRef() {
+        return bytes != null ? bytes : super.getBytesRef();
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        bytes = null;
+    }
+
+    @Override
+    public void end() {
+        super.end();
+        bytes = null;
+    }
+
+    @Override
+    public void copyTo(AttributeImpl target) {
+        super.copyTo(target);
+        if (target instanceof ArabicRootTermAttributeImpl) {
+            ArabicRootTermAttributeImpl to = (ArabicRootTermAttributeImpl) target;
+            if (bytes == null) {
+                to.bytes = null;
+            } else {
+                to.copy.copyBytes(bytes);
+                to.bytes = to.copy.get();
+            }
+        }
+    }
+
+    @Override
+    public ArabicRootTermAttributeImpl clone() {
+        ArabicRootTermAttributeImpl clone = (ArabicRootTermAttributeImpl) super.clone();
+        clone.copy = new BytesRefBuilder();
+        if (bytes != null) {
+            clone.copy.copyBytes(bytes);
+            clone.bytes = clone.copy.get();
+        }
+        return clone;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return super.equals(other) && other instanceof ArabicRootTermAttributeImpl
+            && Objects.equals(bytes, ((ArabicRootTermAttributeImpl) other).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hashCode(bytes);
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable vocabulary of Arabic roots, each identified by a dense int ID. <p> AlKhalil knows a
+ * few thousand roots of three or four letters. A vocabulary packs every root into a single int,
+ * six bits per letter, and maps it to its ID with an open-addressing table of primitive ints, so
+ * translating a root neither allocates nor compares strings. </p> <p> IDs are the position of
+ * roots in the vocabulary. Vocabularies are text files holding one root per line; lines starting
+ * with {@code #} are ignored. The {@linkplain #getDefault() default vocabulary} lists the roots of
+ * the {@linkplain AlKhalilDatabase#current() current} AlKhalil database; since IDs end up in
+ * indexed terms, an index should keep the vocabulary it was built with, {@linkplain #write(Writer)
+ * written} next to it. </p> <p> {@link #toTerm(int, BytesRef)} encodes an ID as a fixed-width
+ * binary term, starting with a byte that never occurs in UTF-8 so that root terms cannot collide
+ * with the text terms of the same field. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootExtractorStemFilter
+ */
+public final class ArabicRootVocabulary {
+
+    /**
+     * First byte of every binary root term.
+     */
+    public static final byte TERM_PREFIX = (byte) 0xFF;
+
+    private static final char FIRST_LETTER = '\u0620';
+    private static final int BITS_PER_LETTER = 6;
+    private static final int MAX_LETTERS = 4;
+    private static final Pattern ROOT = Pattern.compile("<root val=\"([^\"]+)\"");
+
+    private final int[] codes;
+    private final int[] table;
+    private final int mask;
+    private final int idLength;
+    private final byte[] terms;
+
+    private ArabicRootVocabulary(int[] codes) {
+        this.codes = codes;
+        this.table = new int[Math.max(2, Integer.highestOneBit(codes.length * 2 + 1) << 1)];
+        this.mask = table.length - 1;
+        Arrays.fill(table, -1);
+        for (int id = 0; id < codes.length; id++) {
+            int slot = slot(codes[id]);
+            if (table[slot] >= 0) {
+                throw new IllegalArgumentException("Duplicate root: " + root(id));
+            }
+            table[slot] = id;
+        }
+        this.idLength = codes.length <= 1 << 16 ? 2 : 3;
+        int termLength = 1 + idLength;
+        this.terms = new byte[codes.length * termLength];
+        for (int id = 0; id < codes.length; id++) {
+            int offset = id * termLength;
+            terms[offset] = TERM_PREFIX;
+            for (int i = idLength; i > 0; i--) {
+                terms[offset + i] = (byte) (id >>> ((idLength - i) * 8));
+            }
+        }
+    }
+
+    /**
+     * @return the vocabulary of the roots of the {@linkplain AlKhalilDatabase#current() current}
+     * AlKhalil database
+     */
+    public static ArabicRootVocabulary getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Reads a vocabulary.
+     *
+     * @param reader the vocabulary, closed by this method
+     * @return the vocabulary
+     * @throws IOException if the vocabulary cannot be read, or holds a root that is not made of
+     *                     one to four Arabic letters or is listed twice
+     */
+    public static ArabicRootVocabulary load(Reader reader) throws IOException {
+        int[] codes = new int[1024];
+        int size = 0;
+        try (BufferedReader in = new BufferedReader(reader)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int code = encode(line.toCharArray(), 0, line.length());
+                if (code == 0) {
+                    throw new IOException("Malformed root at line " + lineNumber + ": " + line);
+                }
+                codes = ArrayUtil.grow(codes, size + 1);
+                codes[size++] = code;
+            }
+        }
+        try {
+            return new ArabicRootVocabulary(ArrayUtil.copyOfSubArray(codes, 0, size));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a UTF-8 vocabulary.
+     *
+     * @param path the vocabulary
+     * @return the vocabulary
+     * @throws IOException if the vocabulary cannot be read or is malformed
+     */
+    public static ArabicRootVocabulary load(Path path) throws IOException {
+        return load(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lists the roots of an AlKhalil database, which are stored per initial letter for nouns and
+     * verbs. Roots are sorted, so IDs only change when roots are added to or removed from the
+     * database.
+     *
+     * @param database the database
+     * @return the vocabulary of the database
+     * @throws IOException if the database cannot be read
+     */
+    public static ArabicRootVocabulary fromDatabase(AlKhalilDatabase database) throws IOException {
+        int[] codes = new int[1024];
+        int size = 0;
+        for (String category : new String[]{"nouns", "verbs"}) {
+            for (String kind : new String[]{"trilateral", "quadriliteral"}) {
+                for (char letter = 'ء'; letter <= 'ي'; letter++) {
+                    InputStream in = ArabicRootVocabulary.class.getResourceAsStream(
+                        "/AlKhalil2/db/derivedwords/" + database + "/" + category + "/roots/" + kind
+                            + "/" + letter + ".xml");
+                    if (in == null) {
+                        continue;
+                    }
+                    try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            Matcher matcher = ROOT.matcher(line);
+                            while (matcher.find()) {
+                                String root = matcher.group(1);
+                                int code = encode(root.toCharArray(), 0, root.length());
+                                if (code != 0) {
+                                    codes = ArrayUtil.grow(codes, size + 1);
+                                    codes[size++] = code;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        // encoding preserves the order of letters, so sorting codes sorts roots
+        Arrays.sort(codes, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || codes[distinct - 1] != codes[i]) {
+                codes[distinct++] = codes[i];
+            }
+        }
+        return new ArabicRootVocabulary(ArrayUtil.copyOfSubArray(codes, 0, distinct));
+    }
+
+    /**
+     * Writes this vocabulary, one root per line in ID order, so that it can be {@linkplain
+     * #load(Reader) loaded} again with the same IDs.
+     *
+     * @param writer receives the vocabulary; it is not closed by this method
+     * @throws IOException if the vocabulary cannot be written
+     */
+    public void write(Writer writer) throws IOException {
+        for (int id = 0; id < codes.length; id++) {
+            writer.write(root(id));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return the number of roots in this vocabulary
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * @return the ID of a root, or {@code -1} if it is not in this vocabulary
+     */
+    public int id(char[] buffer, int offset, int length) {
+        int code = encode(buffer, offset, length);
+        return code == 0 ? -1 : table[slot(code)];
+    }
+
+    /**
+     * @return the ID of a root, or {@code -1} if it is not in this vocabulary
+     */
+    public int id(CharSequence root) {
+        if (root.length() > MAX_LETTERS) {
+            return -1;
+        }
+        char[] chars = new char[root.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = root.charAt(i);
+        }
+        return id(chars, 0, chars.length);
+    }
+
+    /**
+     * @param term a term
+     * @return the ID of a binary root term, or {@code -1} if {@code term} is not one
+     */
+    public int id(BytesRef term) {
+        if (term.length != 1 + idLength || term.bytes[term.offset] != TERM_PREFIX) {
+            return -1;
+        }
+        int id = 0;
+        for (int i = 1; i <= idLength; i++) {
+            id = (id << 8) | (term.bytes[term.offset + i] & 0xFF);
+        }
+        return id < codes.length ? id : -1;
+    }
+
+    /**
+     * @param id a root ID
+     * @return the root
+     * @throws IndexOutOfBoundsException if {@code id} is not the ID of a root of this vocabulary
+     */
+    public String root(int id) {
+        int code = codes[id];
+        char[] chars = new char[MAX_LETTERS];
+        int length = 0;
+        for (int shift = (MAX_LETTERS - 1) * BITS_PER_LETTER; shift >= 0; shift -= BITS_PER_LETTER) {
+            int letter = (code >>> shift) & ((1 << BITS_PER_LETTER) - 1);
+            if (letter != 0) {
+                chars[length++] = (char) (FIRST_LETTER + letter);
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * @return the length of every binary root term of this vocabulary
+     */
+    public int termLength() {
+        return 1 + idLength;
+    }
+
+    /**
+     * Points {@code term} to the binary term of a root, without allocating or copying. The bytes
+     * are shared and must not be modified.
+     *
+     * @param id   a root ID
+     * @param term the term to update
+     * @return {@code term}
+     */
+    public BytesRef toTerm(int id, BytesRef term) {
+        if (id < 0 || id >= codes.length) {
+            throw new IndexOutOfBoundsException("Unknown root ID: " + id);
+        }
+        term.bytes = terms;
+        term.offset = id * termLength();
+        term.length = termLength();
+        return term;
+    }
+
+    /**
+     * Translates a query root the way {@link ArabicRootExtractorStemFilter} translates indexed
+     * roots: roots of this vocabulary become binary terms, anything else a text term.
+     *
+     * @param field the field
+     * @param root  the root
+     * @return the term to search for
+     */
+    public Term toTerm(String field, String root) {
+        int id = id(root);
+        return id < 0 ? new Term(field, root)
+            : new Term(field, BytesRef.deepCopyOf(toTerm(id, new BytesRef())));
+    }
+
+    /**
+     * Packs a root in an int, six bits per letter in reading order, so that codes sort like roots.
+     *
+     * @return the code of the root, or {@code 0} if it is not made of one to four Arabic letters
+     */
+    private static int encode(char[] buffer, int offset, int length) {
+        if (length < 1 || length > MAX_LETTERS) {
+            return 0;
+        }
+        int code = 0;
+        for (int i = 0; i < MAX_LETTERS; i++) {
+            int letter = 0;
+            if (i < length) {
+                letter = buffer[offset + i] - FIRST_LETTER;
+                if (letter < 1 || letter >= 1 << BITS_PER_LETTER) {
+                    return 0;
+                }
+            }
+            code = (code << BITS_PER_LETTER) | letter;
+        }
+        return code;
+    }
+
+    private int slot(int code) {
+        int hash = code * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (table[slot] >= 0 && codes[table[slot]] != code) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static class DefaultHolder {
+
+        static final ArabicRootVocabulary DEFAULT;
+
+        static {
+            try {
+                DEFAULT = fromDatabase(AlKhalilDatabase.current());
+            } catch (IOException e) {
+                // the database is part of the distribution (JAR)
+                throw new UncheckedIOException("Unable to load the AlKhalil roots", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.sinks.TeeSinkTokenFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.KeywordAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.AttributeSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A {@link TokenFilter} that indexes the same text as surface forms, stems and roots, running the
+ * morphological analysis once per token. <p> The filter itself passes the tokens of its input
+ * through unchanged. While doing so it extracts the stems and roots of every token with a single
+ * call to {@link ArabicRootExtractorStemmer#stem(char[], int, int, ArabicRootBuffer,
+ * ArabicRootBuffer)} and records them for the sinks returned by {@link #newStemSinkTokenStream()}
+ * and {@link #newRootSinkTokenStream()}. Keyword and unknown tokens reach both sinks unchanged, and
+ * the stems or roots of a token are stacked at the same position, like {@link
+ * ArabicRootExtractorStemFilter} does. </p> <p> As with {@link TeeSinkTokenFilter}, this filter
+ * must be consumed before its sinks, which is the case when the three streams are added to a
+ * document in that order: </p>
+ * <pre class="prettyprint">
+ * ArabicStemRootTeeFilter tee = new ArabicStemRootTeeFilter(
+ *     surfaceAnalyzer.tokenStream("text", text), stemmer);
+ * doc.add(new TextField("text", tee));
+ * doc.add(new TextField("text_stem", tee.newStemSinkTokenStream()));
+ * doc.add(new TextField("text_root", tee.newRootSinkTokenStream()));
+ * </pre>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicSurfaceAnalyzer
+ */
+public final class ArabicStemRootTeeFilter extends TokenFilter {
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+    private final KeywordAttribute keywordAttr = addAttribute(KeywordAttribute.class);
+    private final ArabicRootExtractorStemmer stemmer;
+    private final ArabicRootExtractorListener listener;
+    private final ArabicRootBuffer stems = new ArabicRootBuffer();
+    private final ArabicRootBuffer roots = new ArabicRootBuffer();
+    private final States stemStates = new States();
+    private final States rootStates = new States();
+
+    public ArabicStemRootTeeFilter(TokenStream input) {
+        this(input, new ArabicRootExtractorStemmer());
+    }
+
+    /**
+     * @param input   the source {@link TokenStream}, producing normalized surface forms
+     * @param stemmer the stemmer used to extract stems and roots, possibly backed by shared {@link
+     *                ArabicRootCache}s
+     */
+    public ArabicStemRootTeeFilter(TokenStream input, ArabicRootExtractorStemmer stemmer) {
+        super(input);
+        this.stemmer = stemmer;
+        this.listener = stemmer.getEngine().getListener();
+    }
+
+    /**
+     * @return a stream replaying the tokens of this filter, replaced by their stems
+     */
+    public TokenStream newStemSinkTokenStream() {
+        return new SinkTokenStream(cloneAttributes(), stemStates);
+    }
+
+    /**
+     * @return a stream replaying the tokens of this filter, replaced by their roots
+     */
+    public TokenStream newRootSinkTokenStream() {
+        return new SinkTokenStream(cloneAttributes(), rootStates);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (!input.incrementToken()) {
+            return false;
+        }
+
+        if (keywordAttr.isKeyword()) {
+            if (listener != null) {
+                listener.keywordSkipped();
+            }
+            State surface = captureState();
+            stemStates.add(surface);
+            rootStates.add(surface);
+            return true;
+        }
+
+        stemmer.stem(termAtt.buffer(), 0, termAtt.length(), stems, roots);
+
+        State surface = captureState();
+        if (roots.isEmpty()) { // we do not know this word, both sinks get it unchanged
+            stemStates.add(surface);
+            rootStates.add(surface);
+            return true;
+        }
+
+        int posInc = posIncAtt.getPositionIncrement();
+        record(stems.isEmpty() ? roots : stems, posInc, stemStates);
+        record(roots, posInc, rootStates);
+        restoreState(surface);
+        return true;
+    }
+
+    private void record(ArabicRootBuffer forms, int posInc, States states) {
+        for (int i = 0; i < forms.size(); i++) {
+            termAtt.copyBuffer(forms.chars(), forms.offset(i), forms.length(i));
+            posIncAtt.setPositionIncrement(i == 0 ? posInc : 0);
+            states.add(captureState());
+        }
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        State finalState = captureState();
+        stemStates.finalState = finalState;
+        rootStates.finalState = finalState;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        stemStates.clear();
+        rootStates.clear();
+    }
+
+    private static final class States {
+
+        final List<State> states = new ArrayList<>();
+        State finalState;
+
+        void add(State state) {
+            states.add(state);
+        }
+
+        void clear() {
+            states.clear();
+            finalState = null;
+        }
+    }
+
+    private static final class SinkTokenStream extends TokenStream {
+
+        private final States states;
+        private Iterator<State> it;
+
+        SinkTokenStream(AttributeSource source, States states) {
+            super(source);
+            this.states = states;
+        }
+
+        @Override
+        public boolean incrementToken() {
+            if (it == null) {
+                it = states.states.iterator();
+            }
+            if (!it.hasNext()) {
+                return false;
+            }
+            restoreState(it.next());
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            if (states.finalState != null) {
+                restoreState(states.finalState);
+            }
+        }
+
+        @Override
+        public void reset() {
+            it = null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+/**
+ * Extracts the roots, or more generally the index forms, of a token for an {@link
+ * ArabicRootExtractorStemFilter}. <p> {@link ArabicRootExtractorStemmer} is the backend running
+ * the full AlKhalil morphological analysis; {@link ArabicLightStemmingBackend} and {@link #NONE}
+ * are cheap alternatives, and an {@link ArabicTokenRouter} picks one of them per token.
+ * Implementations may keep per-token scratch state and need not be thread-safe: each filter owns
+ * its backend. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public interface ArabicStemmingBackend {
+
+    /**
+     * Leaves every token unchanged.
+     */
+    ArabicStemmingBackend NONE = (buffer, offset, length, roots) -> roots.clear();
+
+    /**
+     * Extracts the roots of a token.
+     *
+     * @param buffer token chars
+     * @param offset offset of the token in {@code buffer}
+     * @param length length of the token
+     * @param roots  cleared, then receives the roots of the token; left empty to keep the token
+     *               unchanged
+     */
+    void stem(char[] buffer, int offset, int length, ArabicRootBuffer roots);
+
+    /**
+     * @return the listener notified of the tokens handled by the filter using this backend, or
+     * {@code null}
+     */
+    default ArabicRootExtractorListener getListener() {
+        return null;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.StopwordAnalyzerBase;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.DecimalDigitFilter;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+import java.io.Reader;
+
+/**
+ * {@link org.apache.lucene.analysis.Analyzer} indexing normalized Arabic surface forms, without
+ * extracting roots. <p> It runs the same chain as {@link ArabicRootExtractorAnalyzer} up to the
+ * stem filter, so that indexing costs about as much as with a {@code StandardAnalyzer}. Roots are
+ * then expanded at query time by an {@link ArabicRootExpansionQueryParser}. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicRootExpansionIndex
+ */
+public final class ArabicSurfaceAnalyzer extends StopwordAnalyzerBase {
+
+    /**
+     * Builds an analyzer with the default stop words of {@link ArabicRootExtractorAnalyzer}.
+     */
+    public ArabicSurfaceAnalyzer() {
+        this(ArabicRootExtractorAnalyzer.getDefaultStopSet());
+    }
+
+    /**
+     * Builds an analyzer with the given stop words
+     *
+     * @param stopwords a stopword set
+     */
+    public ArabicSurfaceAnalyzer(CharArraySet stopwords) {
+        super(stopwords);
+    }
+
+    @Override
+    protected Reader initReader(String fieldName, Reader reader) {
+        return new ArabicNormalizationCharFilter(reader);
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        final Tokenizer source = new StandardTokenizer();
+        TokenStream result = new LowerCaseFilter(source);
+        result = new DecimalDigitFilter(result);
+        result = new StopFilter(result, stopwords);
+        return new TokenStreamComponents(source, result);
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.KeywordAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams the tokens of a text of any size, with their roots, to a {@link Flow.Subscriber}. <p>
+ * Whole books and long transcripts need not be held in memory, nor their tokens collected: the
+ * text is read from a {@link Reader} or a {@link ReadableByteChannel} as it is tokenized, and each
+ * token is analyzed only once the subscriber has requested it. While the subscriber's demand is
+ * exhausted, reading and analysis stop; memory use therefore does not depend on the length of the
+ * text. </p> <p> Tokens come from an analyzer producing normalized surface forms, by default an
+ * {@link ArabicSurfaceAnalyzer}, and roots from an {@link ArabicStemmingBackend}, by default an
+ * {@link ArabicRootExtractorStemmer}; keyword tokens get no roots. Analysis runs on a thread of the
+ * {@link Builder#executor(Executor) executor}, by default a pool shared by all publishers, which
+ * keeps the warm analyzers of its threads between texts. The executor's thread signals the
+ * subscriber. Cancelling the subscription stops the analysis and closes the source. </p> <p> A
+ * publisher reads its source once, so it accepts a single subscriber; later subscribers are
+ * signalled an {@link IllegalStateException}. The analyzer is not closed by this class. </p>
+ * <pre>
+ * ArabicTokenPublisher publisher = ArabicTokenPublisher.builder(
+ *     Files.newBufferedReader(book, StandardCharsets.UTF_8))
+ *     .stemmer(new ArabicRootExtractorStemmer(cache))
+ *     .build();
+ * publisher.subscribe(subscriber);
+ * </pre>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ * @see ArabicSurfaceAnalyzer
+ */
+public final class ArabicTokenPublisher implements Flow.Publisher<ArabicTokenPublisher.Token> {
+
+    private final Reader reader;
+    private final Analyzer analyzer;
+    private final ArabicStemmingBackend stemmer;
+    private final String fieldName;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private ArabicTokenPublisher(Builder builder) {
+        this.reader = builder.reader;
+        this.analyzer = builder.analyzer != null ? builder.analyzer : new ArabicSurfaceAnalyzer();
+        this.stemmer = builder.stemmer != null ? builder.stemmer : new ArabicRootExtractorStemmer();
+        this.fieldName = builder.fieldName;
+        this.executor = builder.executor;
+    }
+
+    /**
+     * @param reader the text to analyze, closed once analyzed or when the subscription is
+     *               cancelled
+     * @return a new builder
+     */
+    public static Builder builder(Reader reader) {
+        return new Builder(Objects.requireNonNull(reader, "reader"));
+    }
+
+    /**
+     * @param channel UTF-8 text to analyze, closed once analyzed or when the subscription is
+     *                cancelled
+     * @return a new builder
+     */
+    public static Builder builder(ReadableByteChannel channel) {
+        return builder(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Token> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException(
+                "ArabicTokenPublisher accepts a single subscriber"));
+            return;
+        }
+        Subscription subscription = new Subscription(subscriber);
+        executor.execute(subscription::run);
+    }
+
+    /**
+     * A token of the text, with its roots.
+     */
+    public static final class Token {
+
+        private final String term;
+        private final List<String> roots;
+        private final int position;
+        private final int startOffset;
+        private final int endOffset;
+
+        Token(String term, List<String> roots, int position, int startOffset, int endOffset) {
+            this.term = term;
+            this.roots = roots;
+            this.position = position;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+        }
+
+        /**
+         * @return the normalized surface form of the token
+         */
+        public String getTerm() {
+            return term;
+        }
+
+        /**
+         * @return the roots of the token, empty for keywords and unknown words
+         */
+        public List<String> getRoots() {
+            return roots;
+        }
+
+        /**
+         * @return the position of the token, counted from 0
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the offset of the first char of the token in the text
+         */
+        public int getStartOffset() {
+            return startOffset;
+        }
+
+        /**
+         * @return the offset following the last char of the token in the text
+         */
+        public int getEndOffset() {
+            return endOffset;
+        }
+
+        @Override
+        public String toString() {
+            return term + roots;
+        }
+    }
+
+    private final class Subscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Token> subscriber;
+        private final ArabicRootBuffer roots = new ArabicRootBuffer();
+        private long demand;
+        private boolean cancelled;
+        private Throwable error;
+
+        Subscription(Flow.Subscriber<? super Token> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + " tokens, must be positive");
+                cancelled = true;
+            } else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the subscriber requests a token or cancels the subscription.
+         *
+         * @return whether a token may be signalled
+         */
+        private synchronized boolean awaitDemand() throws InterruptedException {
+            while (demand == 0 && !cancelled) {
+                wait();
+            }
+            if (cancelled) {
+                return false;
+            }
+            if (demand != Long.MAX_VALUE) {
+                demand--;
+            }
+            return true;
+        }
+
+        private synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        void run() {
+            try {
+                subscriber.onSubscribe(this);
+            } catch (Throwable t) {
+                cancel();
+            }
+            Throwable failure = null;
+            try (TokenStream stream = analyzer.tokenStream(fieldName, reader)) {
+                CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+                PositionIncrementAttribute posIncAtt =
+                    stream.addAttribute(PositionIncrementAttribute.class);
+                OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+                KeywordAttribute keywordAtt = stream.addAttribute(KeywordAttribute.class);
+                stream.reset();
+                int position = -1;
+                while (awaitDemand() && stream.incrementToken()) {
+                    position += posIncAtt.getPositionIncrement();
+                    subscriber.onNext(new Token(termAtt.toString(),
+                        keywordAtt.isKeyword() ? Collections.emptyList()
+                            : roots(termAtt.buffer(), termAtt.length()),
+                        position, offsetAtt.startOffset(), offsetAtt.endOffset()));
+                }
+                if (!isCancelled()) {
+                    stream.end();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                // closing the token stream does not close the reader if reset() failed
+                try {
+                    reader.close();
+                } catch (Throwable t) {
+                    if (failure == null) {
+                        failure = t;
+                    }
+                }
+            }
+            synchronized (this) {
+                if (error != null) {
+                    failure = error;
+                } else if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+            }
+            if (failure != null) {
+                subscriber.onError(failure);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+
+        private List<String> roots(char[] buffer, int length) {
+            stemmer.stem(buffer, 0, length, roots);
+            if (roots.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<String> list = new ArrayList<>(roots.size());
+            for (int i = 0; i < roots.size(); i++) {
+                list.add(new String(roots.chars(), roots.offset(i), roots.length(i)));
+            }
+            return Collections.unmodifiableList(list);
+        }
+    }
+
+    /**
+     * The default executor, unbounded since publishers block while their subscriber has no demand,
+     * created on first use.
+     */
+    private static final class DefaultExecutor {
+
+        static final ExecutorService INSTANCE = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            5, TimeUnit.MINUTES, new SynchronousQueue<>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                        "arabic-token-publisher-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    /**
+     * Builds {@link ArabicTokenPublisher}s.
+     */
+    public static final class Builder {
+
+        private final Reader reader;
+        private Analyzer analyzer;
+        private ArabicStemmingBackend stemmer;
+        private String fieldName = "text";
+        private Executor executor = DefaultExecutor.INSTANCE;
+
+        private Builder(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @param analyzer produces the normalized tokens of the text, an {@link
+         *                 ArabicSurfaceAnalyzer} if {@code null}
+         */
+        public Builder analyzer(Analyzer analyzer) {
+            this.analyzer = analyzer;
+            return this;
+        }
+
+        /**
+         * @param stemmer extracts the roots of each token, an {@link ArabicRootExtractorStemmer}
+         *                with the default engine if {@code null}
+         */
+        public Builder stemmer(ArabicStemmingBackend stemmer) {
+            this.stemmer = stemmer;
+            return this;
+        }
+
+        /**
+         * @param fieldName the field name given to the analyzer, {@code text} by default
+         */
+        public Builder fieldName(String fieldName) {
+            this.fieldName = Objects.requireNonNull(fieldName, "fieldName");
+            return this;
+        }
+
+        /**
+         * @param executor runs the analysis of the text, which blocks while the subscriber has no
+         *                 demand. Each thread of the engine builds its own AlKhalil analyzer the
+         *                 first time it analyzes a word, so an executor creating a thread per
+         *                 publisher pays that cost for every text. By default, a pool shared by
+         *                 all publishers, whose daemon threads are kept for five minutes once idle
+         */
+        public Builder executor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        public ArabicTokenPublisher build() {
+            return new ArabicTokenPublisher(this);
+        }
+    }
+}
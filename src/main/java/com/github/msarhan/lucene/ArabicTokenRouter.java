@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * An {@link ArabicStemmingBackend} that classifies each token by script and length, and hands it
+ * to the backend of its class. <p> Latin words, numbers, hashtags and emoji that reach the stem
+ * filter cannot have an Arabic root; routing them away from the morphological analysis saves its
+ * cost entirely. Classifying a token takes a single pass over its chars. By default: </p> <ul>
+ * <li>{@link TokenClass#NO_ARABIC} and {@link TokenClass#SHORT} tokens are kept unchanged,
+ * <li>{@link TokenClass#MIXED} tokens are light-stemmed by an {@link ArabicLightStemmingBackend},
+ * <li>{@link TokenClass#ARABIC} tokens go to the full morphological analysis. </ul>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public final class ArabicTokenRouter implements ArabicStemmingBackend {
+
+    /**
+     * The classes a token is routed by.
+     */
+    public enum TokenClass {
+        /**
+         * The token has no Arabic letter.
+         */
+        NO_ARABIC,
+        /**
+         * The token only has Arabic letters, fewer than the minimum length of the router.
+         */
+        SHORT,
+        /**
+         * The token has Arabic letters and other chars, such as Latin letters or digits.
+         */
+        MIXED,
+        /**
+         * The token only has Arabic letters.
+         */
+        ARABIC
+    }
+
+    public static final int DEFAULT_MIN_LENGTH = 2;
+
+    private final ArabicStemmingBackend[] backends;
+    private final int minLength;
+
+    /**
+     * Builds a router with the default backends and {@link #DEFAULT_MIN_LENGTH}.
+     *
+     * @param morphology the backend analyzing {@link TokenClass#ARABIC} tokens
+     */
+    public ArabicTokenRouter(ArabicStemmingBackend morphology) {
+        this(defaultBackends(morphology), DEFAULT_MIN_LENGTH);
+    }
+
+    /**
+     * @param backends  the backend of each token class; classes without a backend are kept
+     *                  unchanged
+     * @param minLength the length below which Arabic tokens are {@link TokenClass#SHORT}
+     */
+    public ArabicTokenRouter(Map<TokenClass, ArabicStemmingBackend> backends, int minLength) {
+        if (minLength < 1) {
+            throw new IllegalArgumentException("minLength must be at least 1, got " + minLength);
+        }
+        this.backends = new ArabicStemmingBackend[TokenClass.values().length];
+        for (TokenClass tokenClass : TokenClass.values()) {
+            this.backends[tokenClass.ordinal()] = backends.getOrDefault(tokenClass, NONE);
+        }
+        this.minLength = minLength;
+    }
+
+    private static Map<TokenClass, ArabicStemmingBackend> defaultBackends(
+        ArabicStemmingBackend morphology) {
+        Map<TokenClass, ArabicStemmingBackend> backends = new EnumMap<>(TokenClass.class);
+        backends.put(TokenClass.MIXED, new ArabicLightStemmingBackend());
+        backends.put(TokenClass.ARABIC, morphology);
+        return backends;
+    }
+
+    @Override
+    public void stem(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+        backends[classify(buffer, offset, length).ordinal()].stem(buffer, offset, length, roots);
+    }
+
+    /**
+     * @return the listener of the {@link TokenClass#ARABIC} backend
+     */
+    @Override
+    public ArabicRootExtractorListener getListener() {
+        return backends[TokenClass.ARABIC.ordinal()].getListener();
+    }
+
+    /**
+     * Classifies a token.
+     *
+     * @param buffer token chars
+     * @param offset offset of the token in {@code buffer}
+     * @param length length of the token
+     * @return the class of the token
+     */
+    public TokenClass classify(char[] buffer, int offset, int length) {
+        int arabic = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (isArabicLetter(buffer[i])) {
+                arabic++;
+            }
+        }
+        if (arabic == 0) {
+            return TokenClass.NO_ARABIC;
+        }
+        if (arabic < length) {
+            return TokenClass.MIXED;
+        }
+        return length < minLength ? TokenClass.SHORT : TokenClass.ARABIC;
+    }
+
+    private static boolean isArabicLetter(char c) {
+        return c >= '\u0621' && c <= '\u064A' // hamza to yeh
+            || c >= '\u0671' && c <= '\u06D3'; // alef wasla to yeh barree with hamza
+    }
+}
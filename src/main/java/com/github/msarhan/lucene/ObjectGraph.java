@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shared definitions of the binary object graph format used by {@link AlKhalilSnapshot}. <p> The
+ * format only covers what AlKhalil's lexical database is made of: plain objects, strings, boxed
+ * primitives, primitive and object arrays, and the usual {@code java.util} collections. Plain
+ * objects are built with their no-argument constructor, then their fields are set one by one;
+ * strings are deduplicated and shared references are preserved. </p> <p> Reading a graph never
+ * instantiates a class the reader did not allow: collections and maps are limited to the classes
+ * of {@link #COLLECTIONS} and {@link #MAPS}, and other {@code java.util} containers are written as
+ * the closest of them. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+final class ObjectGraph {
+
+    static final byte NULL = 0;
+    static final byte REFERENCE = 1;
+    static final byte STRING = 2;
+    static final byte INTEGER = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    static final byte CHARACTER = 6;
+    static final byte BOOLEAN = 7;
+    static final byte COLLECTION = 8;
+    static final byte MAP = 9;
+    static final byte OBJECT = 10;
+    static final byte OBJECT_ARRAY = 11;
+    static final byte INT_ARRAY = 12;
+    static final byte CHAR_ARRAY = 13;
+    static final byte BOOLEAN_ARRAY = 14;
+
+    /**
+     * The collection classes a graph may contain.
+     */
+    static final Map<Class<?>, Supplier<Collection<Object>>> COLLECTIONS = Map.of(
+        ArrayList.class, ArrayList::new,
+        LinkedList.class, LinkedList::new,
+        HashSet.class, HashSet::new,
+        LinkedHashSet.class, LinkedHashSet::new,
+        TreeSet.class, TreeSet::new
+    );
+
+    /**
+     * The map classes a graph may contain.
+     */
+    static final Map<Class<?>, Supplier<Map<Object, Object>>> MAPS = Map.of(
+        HashMap.class, HashMap::new,
+        LinkedHashMap.class, LinkedHashMap::new,
+        TreeMap.class, TreeMap::new,
+        ConcurrentHashMap.class, ConcurrentHashMap::new
+    );
+
+    /**
+     * The {@code java.lang} classes object arrays may be made of, besides plain objects.
+     */
+    static final Set<Class<?>> ARRAY_COMPONENTS = Set.of(Object.class, String.class,
+        Integer.class, Long.class, Double.class, Character.class, Boolean.class);
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private ObjectGraph() {
+    }
+
+    /**
+     * @return the instance fields of {@code type} and its super classes, in a stable order
+     */
+    static Field[] fields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, c -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+                Field[] declared = k.getDeclaredFields();
+                Arrays.sort(declared, Comparator.comparing(Field::getName));
+                for (Field field : declared) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        });
+    }
+
+    /**
+     * @return a new instance of a plain object, built with its no-argument constructor
+     * @throws IOException if the class has no such constructor
+     */
+    static Object newPlainObject(Class<?> type) throws IOException, ReflectiveOperationException {
+        Constructor<?> constructor = CONSTRUCTORS.get(type);
+        if (constructor == null) {
+            try {
+                constructor = type.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new IOException("No default constructor: " + type.getName(), e);
+            }
+            constructor.setAccessible(true);
+            CONSTRUCTORS.put(type, constructor);
+        }
+        return constructor.newInstance();
+    }
+
+    /**
+     * @return the class a collection is written as: its own if allowed, otherwise a {@link
+     * LinkedHashSet} for sets and an {@link ArrayList} for other collections
+     */
+    static Class<?> collectionClass(Collection<?> collection) {
+        Class<?> type = collection.getClass();
+        if (COLLECTIONS.containsKey(type) && !hasComparator(collection)) {
+            return type;
+        }
+        return collection instanceof Set ? LinkedHashSet.class : ArrayList.class;
+    }
+
+    /**
+     * @return the class a map is written as: its own if allowed, otherwise a {@link
+     * LinkedHashMap}
+     */
+    static Class<?> mapClass(Map<?, ?> map) {
+        Class<?> type = map.getClass();
+        return MAPS.containsKey(type) && !hasComparator(map) ? type : LinkedHashMap.class;
+    }
+
+    /**
+     * @return whether {@code o} is sorted by a comparator, which cannot be written: its elements are
+     * then written in their sorted order instead
+     */
+    private static boolean hasComparator(Object o) {
+        return o instanceof SortedSet && ((SortedSet<?>) o).comparator() != null
+            || o instanceof SortedMap && ((SortedMap<?, ?>) o).comparator() != null;
+    }
+
+    static boolean isPlainObject(Class<?> type) {
+        return !type.isArray() && !type.isInterface() && !type.getName().startsWith("java.")
+            && !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type);
+    }
+}
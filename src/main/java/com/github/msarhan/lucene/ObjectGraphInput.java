@@ -0,0 +1,304 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Reads an object graph written by {@link ObjectGraphOutput} straight from a (typically memory
+ * mapped) {@link ByteBuffer}. <p> Only the plain object classes accepted by the reader's filter are
+ * loaded, before any of them is initialized, and lengths are checked against the bytes left, so
+ * that a corrupted or forged graph fails with an {@link IOException}. </p>
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+final class ObjectGraphInput {
+
+    private static final Map<String, Supplier<Collection<Object>>> COLLECTIONS =
+        byName(ObjectGraph.COLLECTIONS);
+    private static final Map<String, Supplier<Map<Object, Object>>> MAPS =
+        byName(ObjectGraph.MAPS);
+    private static final Map<String, Class<?>> ARRAY_COMPONENTS = new HashMap<>();
+
+    static {
+        for (Class<?> type : ObjectGraph.ARRAY_COMPONENTS) {
+            ARRAY_COMPONENTS.put(type.getName(), type);
+        }
+    }
+
+    private final ByteBuffer in;
+    private final Predicate<String> allowedClasses;
+    private final List<Object> objects = new ArrayList<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<String> classNames = new ArrayList<>();
+    private final Map<String, Class<?>> classes = new HashMap<>();
+
+    /**
+     * @param in             the graph
+     * @param allowedClasses accepts the names of the plain object classes the graph may contain
+     */
+    ObjectGraphInput(ByteBuffer in, Predicate<String> allowedClasses) {
+        this.in = in;
+        this.allowedClasses = allowedClasses;
+    }
+
+    private static <T> Map<String, T> byName(Map<Class<?>, T> byClass) {
+        Map<String, T> byName = new HashMap<>();
+        byClass.forEach((type, value) -> byName.put(type.getName(), value));
+        return byName;
+    }
+
+    /**
+     * @return the next object of the graph
+     * @throws IOException if the graph is corrupted or contains a class that is not allowed
+     */
+    Object readObject() throws IOException {
+        try {
+            return read();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IOException("Cannot read object graph", e);
+        }
+    }
+
+    private Object read() throws IOException, ReflectiveOperationException {
+        byte tag = in.get();
+        switch (tag) {
+            case ObjectGraph.NULL:
+                return null;
+            case ObjectGraph.REFERENCE: {
+                int id = readVInt();
+                if (id >= objects.size()) {
+                    throw new IOException("Dangling reference: " + id);
+                }
+                return objects.get(id);
+            }
+            case ObjectGraph.STRING:
+                return readString();
+            case ObjectGraph.INTEGER:
+                return in.getInt();
+            case ObjectGraph.LONG:
+                return in.getLong();
+            case ObjectGraph.DOUBLE:
+                return in.getDouble();
+            case ObjectGraph.CHARACTER:
+                return in.getChar();
+            case ObjectGraph.BOOLEAN:
+                return in.get() != 0;
+            case ObjectGraph.INT_ARRAY: {
+                int[] array = new int[readLength(Integer.BYTES)];
+                objects.add(array);
+                in.asIntBuffer().get(array);
+                in.position(in.position() + array.length * Integer.BYTES);
+                return array;
+            }
+            case ObjectGraph.CHAR_ARRAY: {
+                char[] array = new char[readLength(Character.BYTES)];
+                objects.add(array);
+                readChars(array);
+                return array;
+            }
+            case ObjectGraph.BOOLEAN_ARRAY: {
+                boolean[] array = new boolean[readLength(1)];
+                objects.add(array);
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = in.get() != 0;
+                }
+                return array;
+            }
+            case ObjectGraph.OBJECT_ARRAY: {
+                Class<?> componentType = readComponentClass();
+                Object[] array = (Object[]) Array.newInstance(componentType, readLength(1));
+                objects.add(array);
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = read();
+                }
+                return array;
+            }
+            case ObjectGraph.COLLECTION: {
+                String type = readClassName();
+                Supplier<Collection<Object>> factory = COLLECTIONS.get(type);
+                if (factory == null) {
+                    throw new IOException("Collection class not allowed: " + type);
+                }
+                Collection<Object> collection = factory.get();
+                objects.add(collection);
+                for (int i = readLength(1); i > 0; i--) {
+                    collection.add(read());
+                }
+                return collection;
+            }
+            case ObjectGraph.MAP: {
+                String type = readClassName();
+                Supplier<Map<Object, Object>> factory = MAPS.get(type);
+                if (factory == null) {
+                    throw new IOException("Map class not allowed: " + type);
+                }
+                Map<Object, Object> map = factory.get();
+                objects.add(map);
+                for (int i = readLength(2); i > 0; i--) {
+                    Object key = read();
+                    map.put(key, read());
+                }
+                return map;
+            }
+            case ObjectGraph.OBJECT: {
+                Class<?> type = readPlainClass();
+                Object o = ObjectGraph.newPlainObject(type);
+                objects.add(o);
+                for (Field field : ObjectGraph.fields(type)) {
+                    readField(o, field);
+                }
+                return o;
+            }
+            default:
+                throw new IOException("Unknown tag: " + tag);
+        }
+    }
+
+    private void readField(Object o, Field field) throws IOException, ReflectiveOperationException {
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            field.setInt(o, in.getInt());
+        } else if (type == long.class) {
+            field.setLong(o, in.getLong());
+        } else if (type == double.class) {
+            field.setDouble(o, in.getDouble());
+        } else if (type == float.class) {
+            field.setFloat(o, in.getFloat());
+        } else if (type == char.class) {
+            field.setChar(o, in.getChar());
+        } else if (type == short.class) {
+            field.setShort(o, in.getShort());
+        } else if (type == byte.class) {
+            field.setByte(o, in.get());
+        } else if (type == boolean.class) {
+            field.setBoolean(o, in.get() != 0);
+        } else {
+            field.set(o, read());
+        }
+    }
+
+    private Class<?> readPlainClass() throws IOException, ClassNotFoundException {
+        return plainClass(readClassName());
+    }
+
+    private Class<?> plainClass(String name) throws IOException, ClassNotFoundException {
+        Class<?> type = classes.get(name);
+        if (type == null) {
+            if (!allowedClasses.test(name)) {
+                throw new IOException("Class not allowed: " + name);
+            }
+            // the class is not initialized until its constructor runs
+            type = Class.forName(name, false, ObjectGraphInput.class.getClassLoader());
+            if (!ObjectGraph.isPlainObject(type)) {
+                throw new IOException("Not a plain object class: " + name);
+            }
+            classes.put(name, type);
+        }
+        return type;
+    }
+
+    private Class<?> readComponentClass() throws IOException, ClassNotFoundException {
+        String name = readClassName();
+        Class<?> type = ARRAY_COMPONENTS.get(name);
+        return type != null ? type : plainClass(name);
+    }
+
+    private String readClassName() throws IOException {
+        int id = readVInt();
+        if (id > 0) {
+            if (id > classNames.size()) {
+                throw new IOException("Dangling class reference: " + id);
+            }
+            return classNames.get(id - 1);
+        }
+        String name = readChars();
+        classNames.add(name);
+        return name;
+    }
+
+    private String readString() throws IOException {
+        int id = readVInt();
+        if (id > 0) {
+            if (id > strings.size()) {
+                throw new IOException("Dangling string reference: " + id);
+            }
+            return strings.get(id - 1);
+        }
+        String s = readChars();
+        strings.add(s);
+        return s;
+    }
+
+    private String readChars() throws IOException {
+        char[] chars = new char[readLength(Character.BYTES)];
+        readChars(chars);
+        return new String(chars);
+    }
+
+    private void readChars(char[] chars) {
+        in.asCharBuffer().get(chars);
+        in.position(in.position() + chars.length * Character.BYTES);
+    }
+
+    /**
+     * @return a length of elements taking at least {@code bytesPerElement} bytes each
+     * @throws IOException if the elements cannot fit in the bytes left
+     */
+    private int readLength(int bytesPerElement) throws IOException {
+        int length = readVInt();
+        if ((long) length * bytesPerElement > in.remaining()) {
+            throw new IOException("Length " + length + " exceeds the " + in.remaining()
+                + " bytes left");
+        }
+        return length;
+    }
+
+    private int readVInt() throws IOException {
+        byte b = in.get();
+        int i = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            if (shift > 28) {
+                throw new IOException("Malformed variable-length integer");
+            }
+            b = in.get();
+            i |= (b & 0x7F) << shift;
+        }
+        if (i < 0) {
+            throw new IOException("Malformed variable-length integer");
+        }
+        return i;
+    }
+}
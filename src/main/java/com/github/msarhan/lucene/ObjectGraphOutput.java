@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Mouaffak A. Sarhan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.msarhan.lucene;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes an object graph in the format described by {@link ObjectGraph}, keeping a CRC32 checksum
+ * of every byte written.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+final class ObjectGraphOutput {
+
+    private final CRC32 checksum = new CRC32();
+    private final DataOutputStream out;
+    private final Map<Object, Integer> objects = new IdentityHashMap<>();
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+    ObjectGraphOutput(WritableByteChannel channel) {
+        this.out = new DataOutputStream(new BufferedOutputStream(
+            new CheckedOutputStream(Channels.newOutputStream(channel), checksum), 1 << 16));
+    }
+
+    void writeInt(int value) throws IOException {
+        out.writeInt(value);
+    }
+
+    void writeByte(int value) throws IOException {
+        out.writeByte(value);
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the checksum of the bytes written so far, and flushes.
+     */
+    void writeChecksum() throws IOException {
+        out.flush();
+        out.writeInt((int) checksum.getValue());
+        out.flush();
+    }
+
+    void writeObject(Object o) throws IOException {
+        if (o == null) {
+            out.writeByte(ObjectGraph.NULL);
+        } else if (o instanceof String) {
+            out.writeByte(ObjectGraph.STRING);
+            writeString((String) o);
+        } else if (o instanceof Integer) {
+            out.writeByte(ObjectGraph.INTEGER);
+            out.writeInt((Integer) o);
+        } else if (o instanceof Long) {
+            out.writeByte(ObjectGraph.LONG);
+            out.writeLong((Long) o);
+        } else if (o instanceof Double) {
+            out.writeByte(ObjectGraph.DOUBLE);
+            out.writeDouble((Double) o);
+        } else if (o instanceof Character) {
+            out.writeByte(ObjectGraph.CHARACTER);
+            out.writeChar((Character) o);
+        } else if (o instanceof Boolean) {
+            out.writeByte(ObjectGraph.BOOLEAN);
+            out.writeBoolean((Boolean) o);
+        } else {
+            Integer id = objects.get(o);
+            if (id != null) {
+                out.writeByte(ObjectGraph.REFERENCE);
+                writeVInt(id);
+                return;
+            }
+            objects.put(o, objects.size());
+            writeReference(o);
+        }
+    }
+
+    private void writeReference(Object o) throws IOException {
+        Class<?> type = o.getClass();
+        if (o instanceof int[]) {
+            int[] array = (int[]) o;
+            out.writeByte(ObjectGraph.INT_ARRAY);
+            writeVInt(array.length);
+            for (int value : array) {
+                out.writeInt(value);
+            }
+        } else if (o instanceof char[]) {
+            char[] array = (char[]) o;
+            out.writeByte(ObjectGraph.CHAR_ARRAY);
+            writeVInt(array.length);
+            for (char value : array) {
+                out.writeChar(value);
+            }
+        } else if (o instanceof boolean[]) {
+            boolean[] array = (boolean[]) o;
+            out.writeByte(ObjectGraph.BOOLEAN_ARRAY);
+            writeVInt(array.length);
+            for (boolean value : array) {
+                out.writeBoolean(value);
+            }
+        } else if (o instanceof Object[]) {
+            Object[] array = (Object[]) o;
+            out.writeByte(ObjectGraph.OBJECT_ARRAY);
+            writeClass(type.getComponentType());
+            writeVInt(array.length);
+            for (Object value : array) {
+                writeObject(value);
+            }
+        } else if (o instanceof Collection) {
+            if (o instanceof SortedSet && ((SortedSet<?>) o).comparator() != null) {
+                throw new IllegalArgumentException("Sorted sets with a comparator are not supported");
+            }
+            Collection<?> collection = (Collection<?>) o;
+            out.writeByte(ObjectGraph.COLLECTION);
+            writeClass(ObjectGraph.collectionClass(collection));
+            writeVInt(collection.size());
+            for (Object value : collection) {
+                writeObject(value);
+            }
+        } else if (o instanceof Map) {
+            if (o instanceof SortedMap && ((SortedMap<?, ?>) o).comparator() != null) {
+                throw new IllegalArgumentException("Sorted maps with a comparator are not supported");
+            }
+            Map<?, ?> map = (Map<?, ?>) o;
+            out.writeByte(ObjectGraph.MAP);
+            writeClass(ObjectGraph.mapClass(map));
+            writeVInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeObject(entry.getKey());
+                writeObject(entry.getValue());
+            }
+        } else if (ObjectGraph.isPlainObject(type)) {
+            out.writeByte(ObjectGraph.OBJECT);
+            writeClass(type);
+            for (Field field : ObjectGraph.fields(type)) {
+                writeField(o, field);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported type: " + type.getName());
+        }
+    }
+
+    private void writeField(Object o, Field field) throws IOException {
+        try {
+            Class<?> type = field.getType();
+            if (type == int.class) {
+                out.writeInt(field.getInt(o));
+            } else if (type == long.class) {
+                out.writeLong(field.getLong(o));
+            } else if (type == double.class) {
+                out.writeDouble(field.getDouble(o));
+            } else if (type == float.class) {
+                out.writeFloat(field.getFloat(o));
+            } else if (type == char.class) {
+                out.writeChar(field.getChar(o));
+            } else if (type == short.class) {
+                out.writeShort(field.getShort(o));
+            } else if (type == byte.class) {
+                out.writeByte(field.getByte(o));
+            } else if (type == boolean.class) {
+                out.writeBoolean(field.getBoolean(o));
+            } else {
+                writeObject(field.get(o));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeClass(Class<?> type) throws IOException {
+        Integer id = classes.get(type);
+        if (id != null) {
+            writeVInt(id + 1);
+            return;
+        }
+        classes.put(type, classes.size());
+        writeVInt(0);
+        writeChars(type.getName());
+    }
+
+    private void writeString(String s) throws IOException {
+        Integer id = strings.get(s);
+        if (id != null) {
+            writeVInt(id + 1);
+            return;
+        }
+        strings.put(s, strings.size());
+        writeVInt(0);
+        writeChars(s);
+    }
+
+    private void writeChars(String s) throws IOException {
+        writeVInt(s.length());
+        out.writeChars(s);
+    }
+
+    private void writeVInt(int i) throws IOException {
+        while ((i & ~0x7F) != 0) {
+            out.writeByte((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        out.writeByte(i);
+    }
+}
\ No newline at end of file
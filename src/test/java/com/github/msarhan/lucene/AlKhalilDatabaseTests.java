@@ -0,0 +1,54 @@
+package com.github.msarhan.lucene;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class AlKhalilDatabaseTests {
+
+    @Test
+    public void selectsAnAvailableDatabase() {
+        Assertions.assertTrue(AlKhalilDatabase.current().isAvailable());
+        Assertions.assertEquals(AlKhalilDatabase.SHORT, AlKhalilDatabase.forName("Short"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> AlKhalilDatabase.forName("medium"));
+    }
+
+    @Test
+    public void databaseCannotChangeOnceUsed() {
+        ArabicMorphologyEngine.getDefault().analyze("كتب".toCharArray(), 0, 3, new ArabicRootBuffer());
+
+        AlKhalilDatabase current = AlKhalilDatabase.current();
+        AlKhalilDatabase.select(current);
+        AlKhalilDatabase other = current == AlKhalilDatabase.LONG
+            ? AlKhalilDatabase.SHORT : AlKhalilDatabase.LONG;
+        Class<? extends RuntimeException> expected = other.isAvailable()
+            ? IllegalStateException.class : IllegalArgumentException.class;
+        Assertions.assertThrows(expected, () -> AlKhalilDatabase.select(other));
+        Assertions.assertEquals(current, AlKhalilDatabase.current());
+    }
+
+    @Test
+    public void lazySnapshotLoadsRootsOnDemand(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("alkhalil.snapshot");
+        AlKhalilSnapshot.create(path, true);
+        AlKhalilSnapshot snapshot = AlKhalilSnapshot.open(path);
+        Assertions.assertTrue(snapshot.isLazy());
+
+        char[] word = "يتنازعون".toCharArray();
+        ArabicRootBuffer expected = new ArabicRootBuffer();
+        ArabicMorphologyEngine.getDefault().analyze(word, 0, word.length, expected);
+        try (ArabicMorphologyEngine engine = new ArabicMorphologyEngine(snapshot)) {
+            ArabicRootBuffer roots = new ArabicRootBuffer();
+            engine.analyze(word, 0, word.length, roots);
+            Assertions.assertTrue(roots.toSet().contains("نزع"));
+            Assertions.assertEquals(expected.toSet(), roots.toSet());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.msarhan.lucene;
+
+import AlKhalil2.morphology.derived.root.factory.RootFactory;
+import AlKhalil2.morphology.derived.root.model.Root;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class AlKhalilLexiconTests {
+
+    @Test
+    public void loadsPartitionsOfDifferentLettersConcurrently() throws Exception {
+        AlKhalilLexicon lexicon = AlKhalilLexicon.load();
+        String letters = "كتبنزعقرءسلمفحدج";
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(letters.length());
+        try {
+            List<Future<?>> loads = new ArrayList<>();
+            for (char letter : letters.toCharArray()) {
+                loads.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    lexicon.nominalRoots.addTrilateralRootMap(letter);
+                    lexicon.verbalRoots.addTrilateralRootMap(letter);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> load : loads) {
+                load.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (char letter : letters.toCharArray()) {
+            assertRootsStartWith(letter, lexicon.nominalRoots);
+            assertRootsStartWith(letter, lexicon.verbalRoots);
+        }
+    }
+
+    private static void assertRootsStartWith(char letter, RootFactory roots) {
+        Assertions.assertTrue(roots.containsTrilateralCharRoot(letter), "no roots for " + letter);
+        for (Root root : roots.getTrilateralRootMap(letter)) {
+            Assertions.assertEquals(letter, root.getVal().charAt(0), root.getVal());
+        }
+    }
+}
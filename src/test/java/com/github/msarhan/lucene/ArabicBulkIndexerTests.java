@@ -0,0 +1,106 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicBulkIndexerTests {
+
+    @Test
+    public void createsVirtualThreadsWhenSupported() throws ReflectiveOperationException {
+        Thread thread = ArabicBulkIndexer.virtualThreadFactory().newThread(() -> {
+        });
+        boolean virtual = Runtime.version().feature() >= 21
+            && (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        Assertions.assertEquals(ArabicBulkIndexer.supportsVirtualThreads(), virtual);
+        if (Runtime.version().feature() >= 21) {
+            Assertions.assertTrue(virtual);
+        }
+    }
+
+    @Test
+    public void addsPreAnalyzedDocuments() throws IOException {
+        try (Directory directory = new ByteBuffersDirectory();
+            IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            try (ArabicBulkIndexer indexer = ArabicBulkIndexer.builder(writer, analyzer(false))
+                .parallelism(3)
+                .indexingThreads(2)
+                .queueCapacity(2)
+                .threadFactory(ArabicBulkIndexer.virtualThreadFactory())
+                .build()) {
+                for (int i = 0; i < 100; i++) {
+                    Document document = new Document();
+                    document.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                    document.add(new TextField("body", "الرحمن الرحيم", Field.Store.YES));
+                    indexer.add(document);
+                }
+                indexer.flush();
+                Assertions.assertEquals(100, indexer.getAddedCount());
+            }
+            writer.commit();
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                Assertions.assertEquals(100, reader.numDocs());
+                Assertions.assertEquals(100, searcher.count(new TermQuery(new Term("body", "رحم"))));
+                Assertions.assertEquals(100, searcher.count(new PhraseQuery("body", "رحم", "رحم")));
+                Assertions.assertEquals(1, searcher.count(new TermQuery(new Term("id", "42"))));
+                Assertions.assertEquals("الرحمن الرحيم", searcher.doc(0).get("body"));
+            }
+        }
+    }
+
+    @Test
+    public void reportsAnalysisFailures() throws IOException {
+        try (Directory directory = new ByteBuffersDirectory();
+            IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            ArabicBulkIndexer indexer = ArabicBulkIndexer.builder(writer, analyzer(true))
+                .parallelism(2)
+                .build();
+            Document document = new Document();
+            document.add(new TextField("body", "الرحمن", Field.Store.NO));
+            indexer.add(document);
+            Assertions.assertThrows(IllegalStateException.class, indexer::flush);
+            Assertions.assertThrows(IllegalStateException.class, indexer::close);
+            Assertions.assertEquals(0, writer.getDocStats().numDocs);
+        }
+    }
+
+    private static Analyzer analyzer(boolean failing) {
+        ArabicStemmingBackend backend = (buffer, offset, length, roots) -> {
+            if (failing) {
+                throw new IllegalStateException("analysis failed");
+            }
+            roots.clear();
+            roots.add("رحم");
+        };
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer source = new WhitespaceTokenizer();
+                return new TokenStreamComponents(source,
+                    new ArabicRootExtractorStemFilter(source, backend));
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.msarhan.lucene;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicCorpusStatisticsTests {
+
+    private @TempDir Path tempDir;
+
+    @Test
+    public void collectsFrequencies() throws IOException {
+        Path corpus = tempDir.resolve("corpus");
+        Files.createDirectories(corpus.resolve("nested"));
+        Files.write(corpus.resolve("a.txt"), "الرَّحْمَنِ الرحيم\nابدا xyz".getBytes(StandardCharsets.UTF_8));
+        Files.write(corpus.resolve("nested").resolve("b.txt"),
+            "الرحمن ابدا الرحمن".getBytes(StandardCharsets.UTF_8));
+
+        ArabicCorpusStatistics statistics = new ArabicCorpusStatistics(FixedStemmer::new,
+            new ArabicSurfaceAnalyzer(), 2);
+        statistics.process(Collections.singletonList(corpus));
+
+        Assertions.assertEquals(2, statistics.getFileCount());
+        Assertions.assertEquals(7, statistics.getTokenCount());
+        Assertions.assertEquals(4, statistics.getFormCount());
+
+        Map<String, Long> surfaces = new LinkedHashMap<>();
+        surfaces.put("الرحمن", 3L);
+        surfaces.put("ابدا", 2L);
+        surfaces.put("xyz", 1L);
+        surfaces.put("الرحيم", 1L);
+        Assertions.assertIterableEquals(surfaces.entrySet(),
+            statistics.surfaceFrequencies().entrySet());
+
+        Map<String, Long> roots = new LinkedHashMap<>();
+        roots.put("رحم", 4L);
+        roots.put("ءبد", 2L);
+        roots.put("بدد", 2L);
+        roots.put("بدو", 2L);
+        Assertions.assertIterableEquals(roots.entrySet(), statistics.rootFrequencies().entrySet());
+        Assertions.assertEquals(Collections.singletonMap("xyz", 1L), statistics.unknownWords());
+
+        Path output = tempDir.resolve("stats");
+        statistics.write(output);
+        ArabicRootFrequencies frequencies = ArabicRootFrequencies.load(
+            output.resolve(ArabicCorpusStatistics.ROOT_FREQUENCIES_FILE));
+        Assertions.assertEquals(4, frequencies.frequency("رحم".toCharArray(), 0, 3));
+        Assertions.assertEquals(Arrays.asList("الرحمن\t3", "ابدا\t2", "xyz\t1", "الرحيم\t1"),
+            Files.readAllLines(output.resolve(ArabicCorpusStatistics.SURFACE_FREQUENCIES_FILE)));
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.DecimalDigitFilter;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.core.StopFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicFoldingFilterTests {
+
+    private static final CharArraySet STOPWORDS = ArabicRootExtractorAnalyzer.getDefaultStopSet();
+
+    private final Analyzer chain = new Analyzer() {
+        @Override
+        protected Reader initReader(String fieldName, Reader reader) {
+            return new ArabicNormalizationCharFilter(reader);
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new LowerCaseFilter(source);
+            result = new DecimalDigitFilter(result);
+            result = new StopFilter(result, STOPWORDS);
+            return new TokenStreamComponents(source, result);
+        }
+    };
+
+    private final Analyzer folded = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            return new TokenStreamComponents(source, new ArabicFoldingFilter(source, STOPWORDS));
+        }
+    };
+
+    @Test
+    public void folds() throws IOException {
+        Assertions.assertEquals(Arrays.asList("محمد", "2023", "abc"),
+            tokens(folded, "مـــحَمَّد ٢٠٢٣ ABC"));
+    }
+
+    @Test
+    public void matchesChainOnCorpus() throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+            ArabicFoldingFilterTests.class.getResourceAsStream("corpus.txt"),
+            StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.startsWith("#")) {
+                    assertMatchesChain(line);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesChainOnEdgeCases() throws IOException {
+        assertMatchesChain("");
+        assertMatchesChain("في من إلى على");
+        assertMatchesChain("كتب في البيت ثم عن");
+        assertMatchesChain("ـ ـــ َ ـكتب كتبـ كِتَابٌ");
+        assertMatchesChain("الرقم ٤٥٦ و۱۲۳ و𝟙𝟚 ١٫٥");
+        assertMatchesChain("Hello WORLD ΣΟΦΙΑ İstanbul");
+        assertMatchesChain("aَb 1َ2 x َكتب");
+    }
+
+    private void assertMatchesChain(String text) throws IOException {
+        Assertions.assertEquals(describe(chain, text), describe(folded, text), text);
+    }
+
+    private static List<String> tokens(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("f", text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+
+    private static List<String> describe(Analyzer analyzer, String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("f", text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offset = stream.addAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute posInc =
+                stream.addAttribute(PositionIncrementAttribute.class);
+            TypeAttribute type = stream.addAttribute(TypeAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term + "/" + posInc.getPositionIncrement() + "/"
+                    + offset.startOffset() + "-" + offset.endOffset() + "/" + type.type());
+            }
+            stream.end();
+            tokens.add("end/" + posInc.getPositionIncrement() + "/" + offset.endOffset());
+        }
+        return tokens;
+    }
+}
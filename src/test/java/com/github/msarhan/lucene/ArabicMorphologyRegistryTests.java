@@ -0,0 +1,107 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.util.ClasspathResourceLoader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicMorphologyRegistryTests {
+
+    @Test
+    public void sharesResourcesUntilLastLeaseIsClosed() throws IOException {
+        ArabicMorphologyRegistry registry = new ArabicMorphologyRegistry();
+        ArabicMorphologyRegistry.Lease<ArabicRootCache> first = registry.acquireCache(1000);
+        ArabicMorphologyRegistry.Lease<ArabicRootCache> second = registry.acquireCache(1000);
+        ArabicMorphologyRegistry.Lease<ArabicRootCache> other = registry.acquireCache(10);
+        Assertions.assertSame(first.get(), second.get());
+        Assertions.assertNotSame(first.get(), other.get());
+        Assertions.assertEquals(2, registry.size());
+
+        first.close();
+        first.close();
+        Assertions.assertEquals(2, registry.size());
+        second.close();
+        other.close();
+        Assertions.assertEquals(0, registry.size());
+
+        try (ArabicMorphologyRegistry.Lease<ArabicRootCache> third = registry.acquireCache(1000)) {
+            Assertions.assertNotSame(second.get(), third.get());
+        }
+    }
+
+    @Test
+    public void cachesOfOtherDepthsAreNotShared() throws IOException {
+        ArabicMorphologyRegistry registry = new ArabicMorphologyRegistry();
+        try (ArabicMorphologyRegistry.Lease<ArabicRootCache> roots = registry.acquireCache(1000);
+            ArabicMorphologyRegistry.Lease<ArabicRootCache> alsoRoots =
+                registry.acquireCache(1000, ArabicAnalysisDepth.ROOT);
+            ArabicMorphologyRegistry.Lease<ArabicRootCache> stems =
+                registry.acquireCache(1000, ArabicAnalysisDepth.STEM)) {
+            Assertions.assertSame(roots.get(), alsoRoots.get());
+            Assertions.assertNotSame(roots.get(), stems.get());
+        }
+    }
+
+    @Test
+    public void factoriesConfiguredAlikeShareTheirCache() throws IOException {
+        ArabicMorphologyRegistry registry = ArabicMorphologyRegistry.getInstance();
+        int size = registry.size();
+        ArabicRootExtractorStemFilterFactory first = factory();
+        ArabicRootExtractorStemFilterFactory second = factory();
+        Assertions.assertEquals(size + 1, registry.size());
+        first.close();
+        Assertions.assertEquals(size + 1, registry.size());
+        second.close();
+        Assertions.assertEquals(size, registry.size());
+    }
+
+    @Test
+    public void rejectsUnknownFallback() {
+        Map<String, String> args = new HashMap<>();
+        args.put("fallback", "drop");
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new ArabicRootExtractorStemFilterFactory(args));
+    }
+
+    @Test
+    public void rejectsUnknownDepth() {
+        Map<String, String> args = new HashMap<>();
+        args.put("depth", "lemma");
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new ArabicRootExtractorStemFilterFactory(args));
+    }
+
+    @Test
+    public void rejectsAnotherDatabaseThanTheCurrentOne() throws IOException {
+        AlKhalilDatabase current = AlKhalilDatabase.current();
+        Map<String, String> args = new HashMap<>();
+        args.put("database", current == AlKhalilDatabase.LONG ? "short" : "long");
+        ArabicRootExtractorStemFilterFactory other = new ArabicRootExtractorStemFilterFactory(args);
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> other.inform(new ClasspathResourceLoader(ArabicMorphologyRegistryTests.class)));
+        Assertions.assertSame(current, AlKhalilDatabase.current());
+
+        args.put("database", current.toString());
+        try (ArabicRootExtractorStemFilterFactory same =
+            new ArabicRootExtractorStemFilterFactory(args)) {
+            same.inform(new ClasspathResourceLoader(ArabicMorphologyRegistryTests.class));
+        }
+    }
+
+    private static ArabicRootExtractorStemFilterFactory factory() throws IOException {
+        Map<String, String> args = new HashMap<>();
+        args.put("cacheSize", "12345");
+        args.put("maxTokenLength", "20");
+        args.put("fallback", "light_stem");
+        args.put("tokenRouting", "true");
+        ArabicRootExtractorStemFilterFactory factory = new ArabicRootExtractorStemFilterFactory(args);
+        factory.inform(new ClasspathResourceLoader(ArabicMorphologyRegistryTests.class));
+        return factory;
+    }
+}
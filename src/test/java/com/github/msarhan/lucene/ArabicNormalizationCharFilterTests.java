@@ -0,0 +1,66 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicNormalizationCharFilterTests {
+
+    @Test
+    public void normalizesInPlace() {
+        char[] s = "الْعَالَمِينَ".toCharArray();
+        int len = new ArabicNormalizer().normalize(s, s.length);
+        Assertions.assertEquals("العالمين", new String(s, 0, len));
+
+        s = "مـــحـمـد".toCharArray();
+        len = new ArabicNormalizer().normalize(s, s.length);
+        Assertions.assertEquals("محمد", new String(s, 0, len));
+    }
+
+    @Test
+    public void correctsOffsets() throws IOException {
+        String text = "بِسْمِ اللَّهِ الرَّحْمَـٰنِ";
+        List<String> tokens = new ArrayList<>();
+        Tokenizer tokenizer = new StandardTokenizer();
+        tokenizer.setReader(new ArabicNormalizationCharFilter(new StringReader(text)));
+        try (TokenStream stream = tokenizer) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt + "=" + text.substring(offsetAtt.startOffset(), offsetAtt.endOffset()));
+            }
+            stream.end();
+            Assertions.assertEquals(text.length(), offsetAtt.endOffset());
+        }
+
+        Assertions.assertIterableEquals(
+            Arrays.asList("بسم=بِسْمِ", "الله=اللَّهِ", "الرحمٰن=الرَّحْمَـٰنِ"),
+            tokens
+        );
+    }
+
+    @Test
+    public void readsOneCharAtATime() throws IOException {
+        Reader reader = new ArabicNormalizationCharFilter(new StringReader("رَحِيمٌ"));
+        StringBuilder sb = new StringBuilder();
+        for (int c = reader.read(); c != -1; c = reader.read()) {
+            sb.append((char) c);
+        }
+        Assertions.assertEquals("رحيم", sb.toString());
+    }
+}
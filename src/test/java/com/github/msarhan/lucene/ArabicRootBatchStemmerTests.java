@@ -0,0 +1,106 @@
+package com.github.msarhan.lucene;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootBatchStemmerTests {
+
+    @Test
+    public void stemsDistinctTokens() {
+        AtomicInteger analyzed = new AtomicInteger();
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ArabicRootBatchStemmer batch = new ArabicRootBatchStemmer(() -> {
+                created.incrementAndGet();
+                return new ReversingStemmer(analyzed);
+            }, executor, 4);
+
+            List<String> tokens = IntStream.range(0, 1000)
+                .mapToObj(i -> "كلمة" + (i % 100))
+                .collect(Collectors.toList());
+            Map<String, Set<String>> roots = batch.stem(tokens);
+
+            Assertions.assertEquals(100, roots.size());
+            Assertions.assertEquals(100, analyzed.get());
+            Assertions.assertEquals("كلمة0", roots.keySet().iterator().next());
+            Assertions.assertEquals(Collections.singleton("21ةملك"), roots.get("كلمة12"));
+
+            batch.stem(Stream.of("علم", "", "علم"));
+            Assertions.assertTrue(created.get() <= 4);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void mapsUnknownWordsToEmptySets() {
+        ArabicRootBatchStemmer batch = new ArabicRootBatchStemmer(
+            () -> new ReversingStemmer(new AtomicInteger()));
+        Map<String, Set<String>> roots = batch.stem(Arrays.asList("", "علم"));
+        Assertions.assertEquals(Collections.emptySet(), roots.get(""));
+        Assertions.assertEquals(Collections.singleton("ملع"), roots.get("علم"));
+    }
+
+    @Test
+    public void propagatesFailures() {
+        ArabicRootBatchStemmer batch = new ArabicRootBatchStemmer(() -> new ArabicRootExtractorStemmer() {
+            @Override
+            protected void analyze(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+                throw new IllegalStateException("boom");
+            }
+        });
+        Assertions.assertThrows(IllegalStateException.class,
+            () -> batch.stem(Arrays.asList("علم", "رحم")));
+    }
+
+    @Test
+    public void stopsOtherWorkersOnFailure() {
+        AtomicInteger analyzed = new AtomicInteger();
+        AtomicInteger created = new AtomicInteger();
+        // the inline executor runs the failing worker to completion before the second one starts
+        ArabicRootBatchStemmer batch = new ArabicRootBatchStemmer(() -> created.getAndIncrement() == 0
+            ? new ArabicRootExtractorStemmer() {
+                @Override
+                protected void analyze(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+                    throw new IllegalStateException("boom");
+                }
+            }
+            : new ReversingStemmer(analyzed), Runnable::run, 2);
+        Assertions.assertThrows(IllegalStateException.class,
+            () -> batch.stem(Arrays.asList("علم", "رحم", "كتب", "قرأ")));
+        Assertions.assertEquals(0, analyzed.get());
+    }
+
+    private static class ReversingStemmer extends ArabicRootExtractorStemmer {
+
+        private final AtomicInteger analyzed;
+
+        ReversingStemmer(AtomicInteger analyzed) {
+            this.analyzed = analyzed;
+        }
+
+        @Override
+        protected void analyze(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+            analyzed.incrementAndGet();
+            if (length > 0) {
+                roots.add(new StringBuilder().append(buffer, offset, length).reverse());
+            }
+        }
+    }
+}
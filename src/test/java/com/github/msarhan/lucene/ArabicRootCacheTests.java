@@ -0,0 +1,90 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.util.CharsRef;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootCacheTests {
+
+    @Test
+    public void countsHitsAndMisses() {
+        ArabicRootCache cache = new ArabicRootCache(10);
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+
+        Assertions.assertFalse(cache.get(new CharsRef("الرحمن"), roots));
+        roots.add("رحم");
+        cache.put(new CharsRef("الرحمن"), roots);
+
+        for (int i = 0; i < 2; i++) {
+            roots.clear();
+            Assertions.assertTrue(cache.get(new CharsRef("الرحمن"), roots));
+            Assertions.assertEquals(Collections.singleton("رحم"), roots.toSet());
+        }
+
+        Assertions.assertEquals(1, cache.missCount());
+        Assertions.assertEquals(2, cache.hitCount());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void cachesUnknownWords() {
+        ArabicRootCache cache = new ArabicRootCache(10);
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        cache.put(new CharsRef("xyz"), roots);
+        Assertions.assertTrue(cache.get(new CharsRef("xyz"), roots));
+        Assertions.assertTrue(roots.isEmpty());
+    }
+
+    @Test
+    public void matchesTokensInsideLargerBuffers() {
+        ArabicRootCache cache = new ArabicRootCache(10);
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        roots.add("كتب");
+        cache.put(new CharsRef("الكتاب"), roots);
+
+        char[] buffer = " الكتاب ".toCharArray();
+        roots.clear();
+        Assertions.assertTrue(cache.get(new CharsRef(buffer, 1, 6), roots));
+        Assertions.assertEquals(Collections.singleton("كتب"), roots.toSet());
+    }
+
+    @Test
+    public void evictsRarelyUsedWords() {
+        ArabicRootCache cache = new ArabicRootCache(4);
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        for (int i = 0; i < 4; i++) {
+            cache.put(new CharsRef("w" + i), roots);
+        }
+        for (int i = 0; i < 3; i++) {
+            cache.get(new CharsRef("w0"), roots);
+        }
+
+        for (int i = 4; i < 10; i++) {
+            cache.put(new CharsRef("w" + i), roots);
+        }
+
+        Assertions.assertEquals(4, cache.size());
+        Assertions.assertEquals(6, cache.evictionCount());
+        Assertions.assertTrue(cache.get(new CharsRef("w0"), roots));
+    }
+
+    @Test
+    public void growsUpToMaxSize() {
+        ArabicRootCache unbounded = new ArabicRootCache(Integer.MAX_VALUE);
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        unbounded.put(new CharsRef("w"), roots);
+        Assertions.assertTrue(unbounded.get(new CharsRef("w"), roots));
+
+        ArabicRootCache cache = new ArabicRootCache(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(new CharsRef("w" + i), roots);
+        }
+        Assertions.assertEquals(100, cache.size());
+        Assertions.assertEquals(900, cache.evictionCount());
+    }
+}
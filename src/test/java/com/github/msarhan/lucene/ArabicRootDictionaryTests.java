@@ -0,0 +1,65 @@
+package com.github.msarhan.lucene;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootDictionaryTests {
+
+    private @TempDir Path tempDir;
+
+    @Test
+    public void writeAndLookup() throws Exception {
+        ArabicRootDictionaryBuilder builder = new ArabicRootDictionaryBuilder(new FixedStemmer());
+        builder.add("الرَّحْمَنِ");
+        builder.add("ابدا");
+        builder.add("xyz");
+        Path file = tempDir.resolve("roots.fst");
+        builder.write(file);
+
+        try (ArabicRootDictionary dictionary = ArabicRootDictionary.open(file)) {
+            Assertions.assertEquals(3, dictionary.size());
+            Assertions.assertEquals(Collections.singleton("رحم"), dictionary.lookup("الرحمن"));
+            Assertions.assertIterableEquals(Arrays.asList("بدو", "ءبد", "بدد"),
+                dictionary.lookup("ابدا"));
+            Assertions.assertTrue(dictionary.lookup("xyz").isEmpty());
+            Assertions.assertNull(dictionary.lookup("كتب"));
+
+            Map<String, Set<String>> entries = new LinkedHashMap<>();
+            dictionary.forEach(entries::put);
+            Assertions.assertEquals(Map.of(
+                "الرحمن", Collections.singleton("رحم"),
+                "ابدا", new LinkedHashSet<>(Arrays.asList("بدو", "ءبد", "بدد")),
+                "xyz", Collections.emptySet()
+            ), entries);
+            Assertions.assertEquals("xyz", entries.keySet().iterator().next());
+        }
+    }
+
+    @Test
+    public void dictionaryHitsAreNotCached() throws Exception {
+        ArabicRootDictionaryBuilder builder = new ArabicRootDictionaryBuilder(new FixedStemmer());
+        builder.add("الرحمن");
+        Path file = tempDir.resolve("roots.fst");
+        builder.write(file);
+
+        try (ArabicRootDictionary dictionary = ArabicRootDictionary.open(file)) {
+            ArabicRootCache cache = new ArabicRootCache(10);
+            ArabicRootDictionaryStemmer stemmer = new ArabicRootDictionaryStemmer(dictionary, cache);
+            Assertions.assertEquals(Collections.singleton("رحم"), stemmer.stem("الرحمن"));
+            Assertions.assertEquals(0, cache.size());
+            Assertions.assertEquals(0, cache.missCount());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SynonymQuery;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootExpansionQueryParserTests {
+
+    @Test
+    public void expandsQueryTerms() throws Exception {
+        AtomicInteger analyzed = new AtomicInteger();
+        ArabicRootExpansionIndex expansions = new ArabicRootExpansionIndex("title",
+            () -> new FixedStemmer(analyzed));
+
+        try (Directory directory = new ByteBuffersDirectory();
+            IndexWriter writer = new IndexWriter(directory,
+                new IndexWriterConfig(new ArabicSurfaceAnalyzer()))) {
+            add(writer, "بِسْمِ اللَّهِ الرَّحْمَنِ الرَّحِيمِ");
+            add(writer, "الْحَمْدُ لِلَّهِ رَبِّ الْعَالَمِينَ");
+            writer.commit();
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                expansions.refresh(reader);
+
+                Query query = new ArabicRootExpansionQueryParser(new ArabicSurfaceAnalyzer(),
+                    expansions, reader).parse("راحم");
+                Assertions.assertTrue(query instanceof SynonymQuery, query.toString());
+                Assertions.assertEquals(Arrays.asList("الرحمن", "الرحيم", "راحم"), terms(query));
+                Assertions.assertEquals(1, new IndexSearcher(reader).count(query));
+
+                Query unknown = new ArabicRootExpansionQueryParser(new ArabicSurfaceAnalyzer(),
+                    expansions, reader).parse("كتاب");
+                Assertions.assertTrue(unknown instanceof TermQuery, unknown.toString());
+
+                add(writer, "رحمة");
+                writer.commit();
+                try (DirectoryReader newReader = DirectoryReader.openIfChanged(reader)) {
+                    int before = analyzed.get();
+                    expansions.refresh(newReader);
+                    // only the term of the new segment is stemmed
+                    Assertions.assertEquals(before + 1, analyzed.get());
+
+                    ArabicRootExpansionQueryParser parser = new ArabicRootExpansionQueryParser(
+                        new ArabicSurfaceAnalyzer(), expansions, newReader);
+                    parser.setMaxSynonyms(2);
+                    query = parser.parse("راحم");
+                    Assertions.assertTrue(query instanceof TermInSetQuery, query.toString());
+                    Assertions.assertEquals(2, new IndexSearcher(newReader).count(query));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedExpansions() throws Exception {
+        AtomicInteger analyzed = new AtomicInteger();
+        ArabicRootExpansionIndex expansions = new ArabicRootExpansionIndex("title",
+            () -> new FixedStemmer(analyzed), null, 1);
+
+        try (Directory directory = new ByteBuffersDirectory();
+            IndexWriter writer = new IndexWriter(directory,
+                new IndexWriterConfig(new ArabicSurfaceAnalyzer()))) {
+            add(writer, "بِسْمِ اللَّهِ الرَّحْمَنِ الرَّحِيمِ");
+            writer.commit();
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                expansions.refresh(reader);
+                int before = analyzed.get();
+                expansions.expand(reader, "راحم");
+                expansions.expand(reader, "راحم");
+                Assertions.assertEquals(before + 1, analyzed.get());
+
+                expansions.expand(reader, "رحمة");
+                expansions.expand(reader, "راحم");
+                Assertions.assertEquals(before + 3, analyzed.get());
+            }
+        }
+    }
+
+    private static void add(IndexWriter writer, String title) throws Exception {
+        Document doc = new Document();
+        doc.add(new TextField("title", title, Field.Store.NO));
+        writer.addDocument(doc);
+    }
+
+    private static List<String> terms(Query query) {
+        return ((SynonymQuery) query).getTerms().stream()
+            .map(term -> term.bytes().utf8ToString())
+            .sorted(Comparator.comparing(BytesRef::new))
+            .collect(Collectors.toList());
+    }
+}
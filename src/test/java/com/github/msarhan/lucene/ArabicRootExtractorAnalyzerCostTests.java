@@ -0,0 +1,157 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ar.ArabicAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.CharsRef;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Checks that the per-token cost of {@link ArabicRootExtractorAnalyzer} stays within the budgets
+ * of {@code analysis-budgets.properties}: the bytes allocated per token, and the analysis time
+ * relative to Lucene's {@link ArabicAnalyzer} on the same machine. AlKhalil is kept out of the
+ * measurement: every word of the corpus is answered by a pre-filled {@link ArabicRootCache}, so
+ * the budgets track the analysis chain of this library. A failure reports both measured values,
+ * to update the budgets after an intended change.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootExtractorAnalyzerCostTests {
+
+    private static final int WARMUP_PASSES = 200;
+    private static final int PASSES = 50;
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void staysWithinBudgets() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Properties budgets = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("analysis-budgets.properties")) {
+            budgets.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        double tolerance = Double.parseDouble(budgets.getProperty("tolerance"));
+
+        List<String> corpus = corpus();
+        Analyzer analyzer = ArabicRootExtractorAnalyzer.builder()
+            .rootCache(prefilledCache(corpus))
+            .build();
+        Analyzer reference = new ArabicAnalyzer();
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            analyze(analyzer, corpus);
+            analyze(reference, corpus);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long tokens = 0;
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < PASSES; i++) {
+            tokens += analyze(analyzer, corpus);
+        }
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+        double bytesPerToken = (double) allocated / tokens;
+
+        long nanos = Long.MAX_VALUE;
+        long referenceNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            nanos = Math.min(nanos, time(analyzer, corpus));
+            referenceNanos = Math.min(referenceNanos, time(reference, corpus));
+        }
+        double slowdown = (double) nanos / referenceNanos;
+
+        String measured = String.format("measured bytesPerToken=%.1f, slowdown=%.2f",
+            bytesPerToken, slowdown);
+        assertWithinBudget("bytesPerToken", bytesPerToken, budgets, tolerance, measured);
+        assertWithinBudget("slowdown", slowdown, budgets, tolerance, measured);
+    }
+
+    private static void assertWithinBudget(String name, double value, Properties budgets,
+        double tolerance, String measured) {
+        double budget = Double.parseDouble(budgets.getProperty(name));
+        Assertions.assertTrue(value <= budget * (1 + tolerance), () -> String.format(
+            "%s is %.2f, over its budget of %.2f by more than %.0f%% (%s)", name, value, budget,
+            tolerance * 100, measured));
+    }
+
+    private static long time(Analyzer analyzer, List<String> corpus) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < PASSES; i++) {
+            analyze(analyzer, corpus);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static int analyze(Analyzer analyzer, List<String> corpus) throws IOException {
+        int tokens = 0;
+        for (String sentence : corpus) {
+            try (TokenStream stream = analyzer.tokenStream("", sentence)) {
+                stream.reset();
+                while (stream.incrementToken()) {
+                    tokens++;
+                }
+                stream.end();
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Gives every word of the corpus one root, and long words a second one, without AlKhalil.
+     */
+    private static ArabicRootCache prefilledCache(List<String> corpus) throws IOException {
+        ArabicRootCache cache = new ArabicRootCache();
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        try (Analyzer surface = new ArabicSurfaceAnalyzer()) {
+            for (String sentence : corpus) {
+                try (TokenStream stream = surface.tokenStream("", sentence)) {
+                    CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+                    stream.reset();
+                    while (stream.incrementToken()) {
+                        char[] word = termAtt.buffer();
+                        int length = termAtt.length();
+                        roots.clear();
+                        roots.add(word, 0, Math.min(3, length));
+                        if (length > 5) {
+                            roots.add(word, length - 3, 3);
+                        }
+                        cache.put(new CharsRef(word, 0, length).clone(), roots);
+                    }
+                    stream.end();
+                }
+            }
+        }
+        return cache;
+    }
+
+    private static List<String> corpus() throws IOException {
+        List<String> corpus = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+            ArabicRootExtractorAnalyzerCostTests.class.getResourceAsStream("corpus.txt"),
+            StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    corpus.add(line);
+                }
+            }
+        }
+        return corpus;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.miscellaneous.SetKeywordMarkerFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootExtractorMetricsTests {
+
+    @Test
+    public void countsTokens() throws IOException {
+        ArabicRootExtractorMetrics metrics = new ArabicRootExtractorMetrics(2);
+        ArabicMorphologyEngine engine = new ArabicMorphologyEngine(null, metrics);
+
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader("ابدا xyz الله ابدا"));
+        TokenStream stream = new SetKeywordMarkerFilter(tokenizer,
+            new CharArraySet(Arrays.asList("الله"), false));
+        try (TokenStream filter = new ArabicRootExtractorStemFilter(stream, new FixedStemmer(engine))) {
+            filter.reset();
+            while (filter.incrementToken()) {
+                // consume
+            }
+            filter.end();
+        }
+
+        Assertions.assertEquals(3, metrics.getTokenCount());
+        Assertions.assertEquals(1, metrics.getKeywordCount());
+        Assertions.assertEquals(1, metrics.getUnknownCount());
+        long[] roots = metrics.getRootsPerTokenHistogram();
+        Assertions.assertEquals(1, roots[0]);
+        Assertions.assertEquals(2, roots[3]);
+        Assertions.assertEquals(3, Arrays.stream(metrics.getAnalysisTimeHistogram()).sum());
+        Assertions.assertEquals(2, metrics.getSlowestTokens().length);
+
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getTokenCount());
+        Assertions.assertEquals(0, metrics.getSlowestTokens().length);
+    }
+
+    @Test
+    public void keepsSlowestTokens() {
+        ArabicRootExtractorMetrics metrics = new ArabicRootExtractorMetrics(2);
+        for (int i = 1; i <= 5; i++) {
+            char[] token = ("t" + i).toCharArray();
+            metrics.tokenStemmed(token, 0, token.length, 1, i * 1_000_000L);
+        }
+        String[] slowest = metrics.getSlowestTokens();
+        Assertions.assertEquals(2, slowest.length);
+        Assertions.assertTrue(slowest[0].startsWith("t5: "));
+        Assertions.assertTrue(slowest[1].startsWith("t4: "));
+    }
+
+    @Test
+    public void bucketsAnalysisTime() {
+        Assertions.assertEquals(0, ArabicRootExtractorMetrics.timeBucket(999));
+        Assertions.assertEquals(1, ArabicRootExtractorMetrics.timeBucket(1_000));
+        Assertions.assertEquals(11, ArabicRootExtractorMetrics.timeBucket(1_500_000));
+        Assertions.assertEquals(ArabicRootExtractorMetrics.TIME_BUCKETS - 1,
+            ArabicRootExtractorMetrics.timeBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void registersWithJmx() throws JMException {
+        ArabicRootExtractorMetrics metrics = new ArabicRootExtractorMetrics();
+        metrics.register("tests");
+        try {
+            ObjectName name = new ObjectName(
+                "com.github.msarhan.lucene:type=ArabicRootExtractor,name=\"tests\"");
+            Assertions.assertEquals(0L,
+                ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TokenCount"));
+        } finally {
+            metrics.unregister();
+        }
+    }
+}
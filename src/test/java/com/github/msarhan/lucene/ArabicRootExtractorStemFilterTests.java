@@ -0,0 +1,96 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootExtractorStemFilterTests {
+
+    @Test
+    public void stacksRootsAtSamePosition() throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = stream("الرحمن ابدا xyz", new ArabicRootCache())) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt + "/" + posIncAtt.getPositionIncrement() + "/"
+                    + offsetAtt.startOffset());
+            }
+            stream.end();
+        }
+
+        Assertions.assertIterableEquals(
+            Arrays.asList("رحم/1/0", "بدو/1/7", "ءبد/0/7", "بدد/0/7", "xyz/1/12"),
+            tokens
+        );
+    }
+
+    @Test
+    public void reusesCachedRoots() throws IOException {
+        ArabicRootCache cache = new ArabicRootCache();
+        for (int i = 0; i < 2; i++) {
+            try (TokenStream stream = stream("ابدا ابدا", cache)) {
+                stream.reset();
+                while (stream.incrementToken()) {
+                    // consume
+                }
+                stream.end();
+            }
+        }
+        Assertions.assertEquals(1, cache.missCount());
+        Assertions.assertEquals(3, cache.hitCount());
+    }
+
+    @Test
+    public void fallsBackForTokensOverBudget() throws IOException {
+        ArabicRootExtractorBudget budget = new ArabicRootExtractorBudget(5, Long.MAX_VALUE,
+            TimeUnit.NANOSECONDS, ArabicRootExtractorBudget.Fallback.LIGHT_STEM);
+        Assertions.assertIterableEquals(Arrays.asList("رحمن", "بدو", "ءبد", "بدد"),
+            terms("الرحمن ابدا", budget));
+
+        budget = new ArabicRootExtractorBudget(Integer.MAX_VALUE, 0, TimeUnit.NANOSECONDS,
+            ArabicRootExtractorBudget.Fallback.KEEP);
+        Assertions.assertIterableEquals(Arrays.asList("الرحمن", "ابدا"),
+            terms("الرحمن ابدا", budget));
+    }
+
+    private static List<String> terms(String text, ArabicRootExtractorBudget budget)
+        throws IOException {
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader(text));
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = new ArabicRootExtractorStemFilter(tokenizer,
+            new FixedStemmer(), Integer.MAX_VALUE, null, budget)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+
+    private static TokenStream stream(String text, ArabicRootCache cache) {
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader(text));
+        return new ArabicRootExtractorStemFilter(tokenizer, new FixedStemmer(cache));
+    }
+}
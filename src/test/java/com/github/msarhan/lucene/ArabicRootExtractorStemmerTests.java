@@ -1,7 +1,11 @@
 package com.github.msarhan.lucene;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
  */
@@ -27,4 +31,29 @@ public class ArabicRootExtractorStemmerTests {
         assertTrue(stemmer.stem("الْمُؤْمِنِينَ").stream().anyMatch(s -> s.equals("ءمن")));
         assertTrue(stemmer.stem("يَتَنَازَعُونَ").stream().anyMatch(s -> s.equals("نزع")));*/
     }
+
+    @Test
+    public void stripsClitics() {
+        ArabicRootExtractorStemmer stemmer =
+            new ArabicRootExtractorStemmer(null, null, ArabicAnalysisDepth.CLITIC);
+        Set<String> stems = stemmer.stem("وكتابهم");
+        Assertions.assertTrue(stems.contains("كتاب"), stems.toString());
+        for (String stem : stems) {
+            Assertions.assertTrue(stem.length() >= ArabicMorphologyEngine.MIN_CLITIC_STEM_LENGTH);
+        }
+        Assertions.assertEquals(Collections.singleton("من"), stemmer.stem("من"));
+    }
+
+    @Test
+    public void depthSelectsTheAnalysis() {
+        ArabicRootExtractorStemmer roots = new ArabicRootExtractorStemmer();
+        ArabicRootExtractorStemmer stems =
+            new ArabicRootExtractorStemmer(null, null, ArabicAnalysisDepth.STEM);
+        Assertions.assertEquals(ArabicAnalysisDepth.ROOT, roots.getDepth());
+
+        ArabicRootBuffer expectedStems = new ArabicRootBuffer();
+        roots.stem("العالمين".toCharArray(), 0, 8, expectedStems, new ArabicRootBuffer());
+        Assertions.assertEquals(expectedStems.toSet(), stems.stem("العالمين"));
+        Assertions.assertTrue(roots.stem("العالمين").contains("علم"));
+    }
 }
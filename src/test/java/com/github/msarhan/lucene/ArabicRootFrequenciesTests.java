@@ -0,0 +1,80 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootFrequenciesTests {
+
+    @Test
+    public void loadsFrequencies() throws IOException {
+        ArabicRootFrequencies frequencies = ArabicRootFrequencies.load(new StringReader(
+            "# root\tfrequency\nقول\t120\n\nبدو  7\n"));
+        Assertions.assertEquals(2, frequencies.size());
+        Assertions.assertEquals(120, frequency(frequencies, "قول"));
+        Assertions.assertEquals(7, frequency(frequencies, "بدو"));
+        Assertions.assertEquals(0, frequency(frequencies, "xyz"));
+    }
+
+    @Test
+    public void rejectsMalformedTables() {
+        Assertions.assertThrows(IOException.class,
+            () -> ArabicRootFrequencies.load(new StringReader("قول\tmany\n")));
+    }
+
+    @Test
+    public void keepsMostFrequentRoots() throws IOException {
+        ArabicRootFrequencies frequencies = ArabicRootFrequencies.load(new StringReader(
+            "# root\tfrequency\nبدد\t30\nبدو\t20\n"));
+
+        Assertions.assertIterableEquals(Arrays.asList("بدد", "xyz"), stem(1, frequencies));
+        Assertions.assertIterableEquals(Arrays.asList("بدو", "بدد", "xyz"), stem(2, frequencies));
+        Assertions.assertIterableEquals(Arrays.asList("بدو", "ءبد", "بدد", "xyz"),
+            stem(Integer.MAX_VALUE, frequencies));
+    }
+
+    @Test
+    public void ranksUnknownRootsInOriginalOrder() throws IOException {
+        ArabicRootFrequencies frequencies = ArabicRootFrequencies.load(new StringReader(""));
+        Assertions.assertIterableEquals(Arrays.asList("بدو", "xyz"), stem(1, frequencies));
+        Assertions.assertIterableEquals(Arrays.asList("بدو", "xyz"), stem(1, null));
+    }
+
+    private static long frequency(ArabicRootFrequencies frequencies, String root) {
+        return frequencies.frequency(root.toCharArray(), 0, root.length());
+    }
+
+    private static List<String> stem(int maxRoots, ArabicRootFrequencies frequencies)
+        throws IOException {
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader("ابدا ابدا xyz"));
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = new ArabicRootExtractorStemFilter(tokenizer, new FixedStemmer(),
+            maxRoots, frequencies)) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        // the first token is analyzed from scratch, the second one from the same buffer
+        int half = (tokens.size() - 1) / 2;
+        Assertions.assertEquals(tokens.subList(0, half), tokens.subList(half, 2 * half));
+        List<String> result = new ArrayList<>(tokens.subList(0, half));
+        result.add(tokens.get(tokens.size() - 1));
+        return result;
+    }
+}
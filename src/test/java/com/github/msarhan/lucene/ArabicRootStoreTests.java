@@ -0,0 +1,141 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.util.CharsRef;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootStoreTests {
+
+    private @TempDir Path tempDir;
+
+    @Test
+    public void survivesRestarts() throws IOException {
+        try (ArabicRootStore store = ArabicRootStore.open(tempDir)) {
+            put(store, "الرحمن", "رحم");
+            put(store, "ابدا", "بدو", "ءبد", "بدد");
+            put(store, "xyz");
+            Assertions.assertThrows(IOException.class, () -> ArabicRootStore.open(tempDir));
+        }
+
+        try (ArabicRootStore store = ArabicRootStore.open(tempDir)) {
+            Assertions.assertEquals(3, store.size());
+            Assertions.assertEquals(Collections.singleton("رحم"), get(store, "الرحمن"));
+            Assertions.assertIterableEquals(Arrays.asList("بدو", "ءبد", "بدد"), get(store, "ابدا"));
+            Assertions.assertTrue(get(store, "xyz").isEmpty());
+            Assertions.assertNull(get(store, "كتب"));
+        }
+    }
+
+    @Test
+    public void readOnlyStoresSeeAppendedWords() throws IOException {
+        try (ArabicRootStore writer = ArabicRootStore.open(tempDir)) {
+            put(writer, "الرحمن", "رحم");
+            writer.sync();
+            try (ArabicRootStore reader = ArabicRootStore.openReadOnly(tempDir)) {
+                Assertions.assertEquals(Collections.singleton("رحم"), get(reader, "الرحمن"));
+                Assertions.assertThrows(IllegalStateException.class, () -> put(reader, "كتب"));
+
+                put(writer, "ابدا", "بدو");
+                Assertions.assertEquals(Collections.singleton("بدو"), get(reader, "ابدا"));
+
+                // grows the index past its initial capacity, then moves the log
+                for (int i = 0; i < ArabicRootStore.INITIAL_CAPACITY; i++) {
+                    put(writer, "w" + i, "r" + i);
+                }
+                writer.compact();
+                Assertions.assertEquals(Collections.singleton("r4000"), get(reader, "w4000"));
+                Assertions.assertEquals(Collections.singleton("رحم"), get(reader, "الرحمن"));
+            }
+        }
+    }
+
+    @Test
+    public void compactionKeepsLatestRoots() throws IOException {
+        try (ArabicRootStore store = ArabicRootStore.open(tempDir)) {
+            put(store, "ابدا", "بدو");
+            put(store, "ابدا", "ءبد", "بدد");
+            put(store, "الرحمن", "رحم");
+            store.compact();
+            Assertions.assertEquals(2, store.size());
+            Assertions.assertIterableEquals(Arrays.asList("ءبد", "بدد"), get(store, "ابدا"));
+        }
+        try (ArabicRootStore store = ArabicRootStore.open(tempDir)) {
+            Assertions.assertIterableEquals(Arrays.asList("ءبد", "بدد"), get(store, "ابدا"));
+            Assertions.assertEquals(Collections.singleton("رحم"), get(store, "الرحمن"));
+        }
+    }
+
+    @Test
+    public void dropsTornRecords() throws IOException {
+        try (ArabicRootStore store = ArabicRootStore.open(tempDir)) {
+            put(store, "الرحمن", "رحم");
+            put(store, "ابدا", "بدو");
+        }
+
+        // simulate a crash: the index was not synced and the last record was torn
+        try (FileChannel log = FileChannel.open(tempDir.resolve(ArabicRootStore.LOG_FILE),
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileChannel index = FileChannel.open(tempDir.resolve(ArabicRootStore.INDEX_FILE),
+                StandardOpenOption.WRITE)) {
+            ByteBuffer committed = ByteBuffer.allocate(4);
+            log.read(committed, ArabicRootStore.LOG_COMMITTED);
+            log.write(ByteBuffer.wrap(new byte[]{0x7f}), committed.flip().getInt() - 1);
+            index.write(ByteBuffer.allocate(4).putInt(0, 24), ArabicRootStore.INDEX_COVERED);
+        }
+
+        try (ArabicRootStore store = ArabicRootStore.open(tempDir)) {
+            Assertions.assertEquals(1, store.size());
+            Assertions.assertEquals(Collections.singleton("رحم"), get(store, "الرحمن"));
+            Assertions.assertNull(get(store, "ابدا"));
+            put(store, "ابدا", "بدو");
+        }
+        try (ArabicRootStore store = ArabicRootStore.openReadOnly(tempDir)) {
+            Assertions.assertEquals(Collections.singleton("بدو"), get(store, "ابدا"));
+        }
+    }
+
+    @Test
+    public void backsRootCache() throws IOException {
+        try (ArabicRootStore store = ArabicRootStore.open(tempDir)) {
+            ArabicRootCache cache = new ArabicRootCache(10, store);
+            ArabicRootBuffer roots = new ArabicRootBuffer();
+            roots.add("رحم");
+            cache.put(new CharsRef("الرحمن"), roots);
+        }
+        try (ArabicRootStore store = ArabicRootStore.openReadOnly(tempDir)) {
+            ArabicRootCache cache = new ArabicRootCache(10, store);
+            ArabicRootBuffer roots = new ArabicRootBuffer();
+            Assertions.assertTrue(cache.get(new CharsRef("الرحمن"), roots));
+            Assertions.assertTrue(cache.get(new CharsRef("الرحمن"), roots));
+            Assertions.assertEquals(Collections.singleton("رحم"), roots.toSet());
+            Assertions.assertEquals(1, cache.storeHitCount());
+            Assertions.assertEquals(1, cache.size());
+        }
+    }
+
+    private static void put(ArabicRootStore store, String token, String... roots) {
+        ArabicRootBuffer buffer = new ArabicRootBuffer();
+        for (String root : roots) {
+            buffer.add(root);
+        }
+        store.put(new CharsRef(token), buffer);
+    }
+
+    private static Set<String> get(ArabicRootStore store, String token) {
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        return store.get(new CharsRef(token), roots) ? roots.toSet() : null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicRootVocabularyTests {
+
+    @Test
+    public void mapsRootsToDenseIds() throws IOException {
+        ArabicRootVocabulary vocabulary = ArabicRootVocabulary.load(
+            new StringReader("# roots\nكتب\nرحم\nءمن\nزلزل\n"));
+        Assertions.assertEquals(4, vocabulary.size());
+        Assertions.assertEquals(0, vocabulary.id("كتب"));
+        Assertions.assertEquals(3, vocabulary.id("زلزل"));
+        Assertions.assertEquals(-1, vocabulary.id("علم"));
+        Assertions.assertEquals(-1, vocabulary.id("xyz"));
+        Assertions.assertEquals(-1, vocabulary.id("استخدام"));
+        for (int id = 0; id < vocabulary.size(); id++) {
+            String root = vocabulary.root(id);
+            Assertions.assertEquals(id, vocabulary.id(root));
+            BytesRef term = vocabulary.toTerm(id, new BytesRef());
+            Assertions.assertEquals(vocabulary.termLength(), term.length);
+            Assertions.assertEquals(id, vocabulary.id(term));
+        }
+        Assertions.assertEquals(-1, vocabulary.id(new BytesRef("كتب")));
+
+        StringWriter writer = new StringWriter();
+        vocabulary.write(writer);
+        ArabicRootVocabulary copy = ArabicRootVocabulary.load(new StringReader(writer.toString()));
+        Assertions.assertEquals(vocabulary.size(), copy.size());
+        Assertions.assertEquals(vocabulary.id("ءمن"), copy.id("ءمن"));
+    }
+
+    @Test
+    public void rejectsMalformedVocabularies() {
+        Assertions.assertThrows(IOException.class,
+            () -> ArabicRootVocabulary.load(new StringReader("كتب\nroot\n")));
+        Assertions.assertThrows(IOException.class,
+            () -> ArabicRootVocabulary.load(new StringReader("كتب\nرحم\nكتب\n")));
+    }
+
+    @Test
+    public void stemFilterEmitsBinaryRootTerms() throws IOException {
+        ArabicRootVocabulary vocabulary = ArabicRootVocabulary.load(new StringReader("كتب\nرحم\n"));
+        ArabicStemmingBackend backend = (buffer, offset, length, roots) -> {
+            roots.clear();
+            String word = new String(buffer, offset, length);
+            if (word.equals("الرحمن")) {
+                roots.add("رحم");
+            } else if (word.equals("المستخدم")) {
+                roots.add("خدم");
+            }
+        };
+
+        Tokenizer tokenizer = new WhitespaceTokenizer(ArabicRootTermAttributeImpl.FACTORY);
+        tokenizer.setReader(new StringReader("الرحمن المستخدم lucene"));
+        List<BytesRef> terms = new ArrayList<>();
+        try (TokenStream stream = new ArabicRootExtractorStemFilter(tokenizer, backend,
+            Integer.MAX_VALUE, null, ArabicRootExtractorBudget.UNLIMITED, vocabulary)) {
+            TermToBytesRefAttribute termAtt = stream.getAttribute(TermToBytesRefAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(BytesRef.deepCopyOf(termAtt.getBytesRef()));
+            }
+            stream.end();
+        }
+
+        Term root = vocabulary.toTerm("f", "رحم");
+        Assertions.assertEquals(vocabulary.termLength(), root.bytes().length);
+        Assertions.assertEquals(Arrays.asList(root.bytes(), new BytesRef("خدم"),
+            new BytesRef("lucene")), terms);
+        Assertions.assertEquals(new BytesRef("خدم"), vocabulary.toTerm("f", "خدم").bytes());
+
+        Tokenizer plain = new WhitespaceTokenizer();
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new ArabicRootExtractorStemFilter(plain, backend, Integer.MAX_VALUE, null,
+                ArabicRootExtractorBudget.UNLIMITED, vocabulary));
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.msarhan.lucene;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicStemRootTeeFilterTests {
+
+    @Test
+    public void feedsSurfaceStemAndRootSinks() throws IOException {
+        FixedStemmer stemmer = new FixedStemmer();
+        ArabicStemRootTeeFilter tee = tee("الرحمن ابدا xyz", stemmer);
+        TokenStream stems = tee.newStemSinkTokenStream();
+        TokenStream roots = tee.newRootSinkTokenStream();
+
+        Assertions.assertIterableEquals(
+            Arrays.asList("الرحمن/1/0", "ابدا/1/7", "xyz/1/12"), consume(tee));
+        Assertions.assertIterableEquals(
+            Arrays.asList("رحمن/1/0", "ابد/1/7", "بدا/0/7", "xyz/1/12"), consume(stems));
+        Assertions.assertIterableEquals(
+            Arrays.asList("رحم/1/0", "بدو/1/7", "ءبد/0/7", "بدد/0/7", "xyz/1/12"), consume(roots));
+        Assertions.assertEquals(3, stemmer.analyzed.get());
+    }
+
+    @Test
+    public void reusesCachedStemsAndRoots() throws IOException {
+        FixedStemmer stemmer = new FixedStemmer(new ArabicRootCache(), new ArabicRootCache());
+        for (int i = 0; i < 2; i++) {
+            ArabicStemRootTeeFilter tee = tee("ابدا ابدا", stemmer);
+            TokenStream roots = tee.newRootSinkTokenStream();
+            consume(tee);
+            Assertions.assertEquals(Arrays.asList("بدو/1/0", "ءبد/0/0", "بدد/0/0", "بدو/1/5",
+                "ءبد/0/5", "بدد/0/5"), consume(roots));
+        }
+        Assertions.assertEquals(1, stemmer.analyzed.get());
+    }
+
+    private static ArabicStemRootTeeFilter tee(String text, ArabicRootExtractorStemmer stemmer) {
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader(text));
+        return new ArabicStemRootTeeFilter(tokenizer, stemmer);
+    }
+
+    private static List<String> consume(TokenStream stream) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (stream) {
+            CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute posIncAtt = stream.addAttribute(PositionIncrementAttribute.class);
+            OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt + "/" + posIncAtt.getPositionIncrement() + "/"
+                    + offsetAtt.startOffset());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
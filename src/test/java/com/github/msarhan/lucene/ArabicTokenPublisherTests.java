@@ -0,0 +1,171 @@
+package com.github.msarhan.lucene;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicTokenPublisherTests {
+
+    private static final ArabicStemmingBackend STEMMER = (buffer, offset, length, roots) -> {
+        roots.clear();
+        if (new String(buffer, offset, length).contains("رحم")) {
+            roots.add("رحم");
+        }
+    };
+
+    @Test
+    public void publishesTokensWithTheirRoots() throws Exception {
+        ArabicTokenPublisher publisher = ArabicTokenPublisher.builder(
+            Channels.newChannel(new ByteArrayInputStream(
+                "بِسْمِ اللَّهِ الرَّحْمَنِ".getBytes(StandardCharsets.UTF_8))))
+            .stemmer(STEMMER)
+            .build();
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        publisher.subscribe(recorder);
+
+        List<ArabicTokenPublisher.Token> tokens = recorder.done.get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(3, tokens.size());
+        Assertions.assertEquals("بسم", tokens.get(0).getTerm());
+        Assertions.assertEquals(Collections.emptyList(), tokens.get(0).getRoots());
+        Assertions.assertEquals("الرحمن", tokens.get(2).getTerm());
+        Assertions.assertEquals(Collections.singletonList("رحم"), tokens.get(2).getRoots());
+        Assertions.assertEquals(2, tokens.get(2).getPosition());
+        Assertions.assertEquals(15, tokens.get(2).getStartOffset());
+    }
+
+    @Test
+    public void analyzesOnlyWhatIsRequested() throws Exception {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            words.add("رحمة");
+        }
+        CountingReader reader = new CountingReader(String.join(" ", words));
+        ArabicTokenPublisher publisher = ArabicTokenPublisher.builder(reader)
+            .stemmer(STEMMER)
+            .build();
+        Recorder recorder = new Recorder(2);
+        publisher.subscribe(recorder);
+
+        Assertions.assertNotNull(recorder.tokens.poll(10, TimeUnit.SECONDS));
+        Assertions.assertNotNull(recorder.tokens.poll(10, TimeUnit.SECONDS));
+        Assertions.assertNull(recorder.tokens.poll(200, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(reader.read < 50000 / 2, "read " + reader.read + " chars");
+
+        recorder.subscription.request(1);
+        Assertions.assertNotNull(recorder.tokens.poll(10, TimeUnit.SECONDS));
+        recorder.subscription.cancel();
+        for (int i = 0; i < 100 && !reader.closed.get(); i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(reader.closed.get());
+        Assertions.assertFalse(recorder.done.isDone());
+    }
+
+    @Test
+    public void signalsInvalidRequests() throws Exception {
+        ArabicTokenPublisher publisher = ArabicTokenPublisher.builder(new StringReader("كتب"))
+            .stemmer(STEMMER)
+            .build();
+        Recorder recorder = new Recorder(0);
+        publisher.subscribe(recorder);
+        recorder.subscribed.get(10, TimeUnit.SECONDS).request(-1);
+        assertFailsWith(IllegalArgumentException.class, recorder);
+
+        Recorder second = new Recorder(1);
+        publisher.subscribe(second);
+        assertFailsWith(IllegalStateException.class, second);
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> expected, Recorder recorder)
+        throws Exception {
+        try {
+            recorder.done.get(10, TimeUnit.SECONDS);
+            Assertions.fail("expected " + expected.getSimpleName());
+        } catch (ExecutionException e) {
+            Assertions.assertEquals(expected, e.getCause().getClass());
+        }
+    }
+
+    private static final class Recorder implements Flow.Subscriber<ArabicTokenPublisher.Token> {
+
+        final long initialDemand;
+        final BlockingQueue<ArabicTokenPublisher.Token> tokens = new LinkedBlockingQueue<>();
+        final List<ArabicTokenPublisher.Token> received = new ArrayList<>();
+        final CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+        final CompletableFuture<List<ArabicTokenPublisher.Token>> done = new CompletableFuture<>();
+        volatile Flow.Subscription subscription;
+
+        Recorder(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscribed.complete(subscription);
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(ArabicTokenPublisher.Token token) {
+            received.add(token);
+            tokens.add(token);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(received);
+        }
+    }
+
+    private static final class CountingReader extends Reader {
+
+        final Reader in;
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile int read;
+
+        CountingReader(String text) {
+            this.in = new StringReader(text);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int n = in.read(cbuf, off, len);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.msarhan.lucene;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ArabicTokenRouterTests {
+
+    @Test
+    public void classifiesTokens() {
+        ArabicTokenRouter router = new ArabicTokenRouter(ArabicStemmingBackend.NONE);
+        Assertions.assertEquals(ArabicTokenRouter.TokenClass.NO_ARABIC, classify(router, "lucene"));
+        Assertions.assertEquals(ArabicTokenRouter.TokenClass.NO_ARABIC, classify(router, "2022"));
+        Assertions.assertEquals(ArabicTokenRouter.TokenClass.NO_ARABIC, classify(router, "😀"));
+        Assertions.assertEquals(ArabicTokenRouter.TokenClass.SHORT, classify(router, "و"));
+        Assertions.assertEquals(ArabicTokenRouter.TokenClass.MIXED, classify(router, "#الرحمن"));
+        Assertions.assertEquals(ArabicTokenRouter.TokenClass.ARABIC, classify(router, "الرحمن"));
+    }
+
+    @Test
+    public void routesTokensToBackends() {
+        List<String> analyzed = new ArrayList<>();
+        ArabicTokenRouter router = new ArabicTokenRouter((buffer, offset, length, roots) -> {
+            roots.clear();
+            analyzed.add(new String(buffer, offset, length));
+            roots.add("رحم");
+        });
+
+        Assertions.assertEquals(Collections.singleton("رحم"), stem(router, "الرحمن"));
+        Assertions.assertEquals(Collections.emptySet(), stem(router, "lucene"));
+        Assertions.assertEquals(Collections.emptySet(), stem(router, "و"));
+        Assertions.assertEquals(Collections.singleton("كتاب2"), stem(router, "الكتاب2"));
+        Assertions.assertEquals(Collections.singletonList("الرحمن"), analyzed);
+    }
+
+    private static ArabicTokenRouter.TokenClass classify(ArabicTokenRouter router, String token) {
+        return router.classify(token.toCharArray(), 0, token.length());
+    }
+
+    private static Set<String> stem(ArabicStemmingBackend backend, String token) {
+        ArabicRootBuffer roots = new ArabicRootBuffer();
+        backend.stem(token.toCharArray(), 0, token.length(), roots);
+        return roots.toSet();
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.msarhan.lucene;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stemmer reading the stems and roots of a few words from fixed tables instead of running the
+ * morphological analysis, so that tests do not depend on AlKhalil. Words missing from the tables
+ * are unknown.
+ *
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+class FixedStemmer extends ArabicRootExtractorStemmer {
+
+    static final Map<String, List<String>> STEMS = Map.of(
+        "الرحمن", Collections.singletonList("رحمن"),
+        "ابدا", Arrays.asList("ابد", "بدا")
+    );
+
+    static final Map<String, List<String>> ROOTS = Map.of(
+        "الرحمن", Collections.singletonList("رحم"),
+        "الرحيم", Collections.singletonList("رحم"),
+        "راحم", Collections.singletonList("رحم"),
+        "رحمة", Collections.singletonList("رحم"),
+        "العالمين", Collections.singletonList("علم"),
+        "ابدا", Arrays.asList("بدو", "ءبد", "بدد")
+    );
+
+    /**
+     * Counts the words analyzed, i.e. not answered from a cache.
+     */
+    final AtomicInteger analyzed;
+
+    FixedStemmer() {
+        this(null, null, null, new AtomicInteger());
+    }
+
+    FixedStemmer(ArabicRootCache cache) {
+        this(cache, null, null, new AtomicInteger());
+    }
+
+    FixedStemmer(ArabicRootCache cache, ArabicRootCache stemCache) {
+        this(cache, stemCache, null, new AtomicInteger());
+    }
+
+    FixedStemmer(ArabicMorphologyEngine engine) {
+        this(null, null, engine, new AtomicInteger());
+    }
+
+    FixedStemmer(AtomicInteger analyzed) {
+        this(null, null, null, analyzed);
+    }
+
+    private FixedStemmer(ArabicRootCache cache, ArabicRootCache stemCache,
+        ArabicMorphologyEngine engine, AtomicInteger analyzed) {
+        super(cache, stemCache, engine);
+        this.analyzed = analyzed;
+    }
+
+    @Override
+    protected void analyze(char[] buffer, int offset, int length, ArabicRootBuffer roots) {
+        analyzed.incrementAndGet();
+        ROOTS.getOrDefault(new String(buffer, offset, length), Collections.emptyList())
+            .forEach(roots::add);
+    }
+
+    @Override
+    protected void analyze(char[] buffer, int offset, int length, ArabicRootBuffer stems,
+        ArabicRootBuffer roots) {
+        String token = new String(buffer, offset, length);
+        analyzed.incrementAndGet();
+        STEMS.getOrDefault(token, Collections.emptyList()).forEach(stems::add);
+        ROOTS.getOrDefault(token, Collections.emptyList()).forEach(roots::add);
+    }
+}
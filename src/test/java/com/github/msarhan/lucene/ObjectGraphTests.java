@@ -0,0 +1,118 @@
+package com.github.msarhan.lucene;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * @author Mouaffak A. Sarhan &lt;mouffaksarhan@gmail.com&gt;
+ */
+public class ObjectGraphTests {
+
+    @Test
+    public void roundTripsPlainObjects() throws IOException {
+        Node shared = new Node("رحم", 3);
+        Node root = new Node("بدو", 1);
+        root.children.add(shared);
+        root.children.add(shared);
+        root.index.put('ر', Arrays.asList("رحم", "رحب"));
+        root.sorted.put(2, "بدد");
+        root.tags.add("فعل");
+        root.weights = new int[]{1, 2, 3};
+        root.letters = new char[]{'ب', 'د'};
+        root.flags = new boolean[]{true, false};
+        root.nodes = new Node[]{shared, null};
+        root.self = root;
+
+        Node copy = (Node) roundTrip(root);
+
+        Assertions.assertEquals("بدو", copy.name);
+        Assertions.assertEquals(1, copy.id);
+        Assertions.assertEquals(2, copy.children.size());
+        Assertions.assertSame(copy.children.get(0), copy.children.get(1));
+        Assertions.assertSame(copy.children.get(0), copy.nodes[0]);
+        Assertions.assertNull(copy.nodes[1]);
+        Assertions.assertSame(copy, copy.self);
+        Assertions.assertEquals("رحم", copy.children.get(0).name);
+        Assertions.assertEquals(Arrays.asList("رحم", "رحب"), copy.index.get('ر'));
+        Assertions.assertEquals(TreeMap.class, copy.sorted.getClass());
+        Assertions.assertEquals("بدد", copy.sorted.get(2));
+        Assertions.assertEquals(Set.of("فعل"), copy.tags);
+        Assertions.assertArrayEquals(new int[]{1, 2, 3}, copy.weights);
+        Assertions.assertArrayEquals(new char[]{'ب', 'د'}, copy.letters);
+        Assertions.assertArrayEquals(new boolean[]{true, false}, copy.flags);
+    }
+
+    @Test
+    public void rejectsClassesNotAllowed() throws IOException {
+        byte[] bytes = write(new Node("رحم", 3));
+
+        IOException e = Assertions.assertThrows(IOException.class,
+            () -> new ObjectGraphInput(ByteBuffer.wrap(bytes), name -> false).readObject());
+        Assertions.assertTrue(e.getMessage().contains(Node.class.getName()));
+    }
+
+    @Test
+    public void rejectsTruncatedInput() throws IOException {
+        Node root = new Node("بدو", 1);
+        root.weights = new int[]{1, 2, 3};
+        byte[] bytes = write(root);
+
+        for (int length = 0; length < bytes.length; length++) {
+            ByteBuffer in = ByteBuffer.wrap(Arrays.copyOf(bytes, length));
+            Assertions.assertThrows(IOException.class, () -> read(in));
+        }
+    }
+
+    private static Object roundTrip(Object o) throws IOException {
+        return read(ByteBuffer.wrap(write(o)));
+    }
+
+    private static byte[] write(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectGraphOutput output = new ObjectGraphOutput(Channels.newChannel(bytes));
+        output.writeObject(o);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Object read(ByteBuffer in) throws IOException {
+        return new ObjectGraphInput(in, name -> name.equals(Node.class.getName())).readObject();
+    }
+
+    private static class Node {
+
+        final String name;
+        final int id;
+        final List<Node> children = new ArrayList<>();
+        final Map<Character, List<String>> index = new HashMap<>();
+        final TreeMap<Integer, String> sorted = new TreeMap<>();
+        final Set<String> tags = new LinkedHashSet<>();
+        int[] weights;
+        char[] letters;
+        boolean[] flags;
+        Node[] nodes;
+        Node self;
+
+        Node() {
+            this(null, 0);
+        }
+
+        Node(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+    }
+}